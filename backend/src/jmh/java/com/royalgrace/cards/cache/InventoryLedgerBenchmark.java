@@ -0,0 +1,111 @@
+package com.royalgrace.cards.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A flash drop: many buyers reserving one unit of the same few cards. {@code ledger} goes
+ * through the compare-and-set counters; {@code locked} admits the same reservations one at
+ * a time under a lock per card, the way checkouts queue on the card row lock. Every admitted
+ * unit is put back so stock never runs out, except with {@code stock=0}, where every buyer
+ * is turned away. Run with {@code -t} to change the thread count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(64)
+public class InventoryLedgerBenchmark {
+
+    @Param({"1", "16"})
+    public int cards;
+
+    @Param({"1000000", "0"})
+    public int stock;
+
+    private InventoryLedger ledger;
+    private Map<String, int[]> lockedStock;
+
+    @Setup
+    public void setUp() {
+        // the database is only read by reconcile() and reload(), which never run here
+        ledger = new InventoryLedger(null, new SimpleMeterRegistry());
+        lockedStock = new HashMap<>();
+        for (int i = 0; i < cards; i++) {
+            ledger.set(cardId(i), stock);
+            lockedStock.put(cardId(i), new int[] {stock});
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Buyer {
+
+        private SortedMap<String, Integer>[] reservations;
+
+        @Setup
+        @SuppressWarnings("unchecked")
+        public void setUp(InventoryLedgerBenchmark benchmark) {
+            reservations = new SortedMap[benchmark.cards];
+            for (int i = 0; i < benchmark.cards; i++) {
+                reservations[i] = new TreeMap<>(Map.of(cardId(i), 1));
+            }
+        }
+
+        SortedMap<String, Integer> next() {
+            return reservations[ThreadLocalRandom.current().nextInt(reservations.length)];
+        }
+    }
+
+    @Benchmark
+    public boolean ledger(Buyer buyer) {
+        SortedMap<String, Integer> reservation = buyer.next();
+        List<String> missing = ledger.tryTake(reservation);
+        if (!missing.isEmpty()) {
+            return false;
+        }
+        reservation.forEach(ledger::putBack);
+        return true;
+    }
+
+    @Benchmark
+    public boolean locked(Buyer buyer) {
+        // reservations here are single cards, so one lock per card stands in for its row lock
+        Map.Entry<String, Integer> line = buyer.next().entrySet().iterator().next();
+        int[] row = lockedStock.get(line.getKey());
+        synchronized (row) {
+            if (row[0] < line.getValue()) {
+                return false;
+            }
+            row[0] -= line.getValue();
+        }
+        synchronized (row) {
+            row[0] += line.getValue();
+        }
+        return true;
+    }
+
+    private static String cardId(int i) {
+        return "card-" + i;
+    }
+}
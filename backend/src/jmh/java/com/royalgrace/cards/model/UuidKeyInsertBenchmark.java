@@ -0,0 +1,128 @@
+package com.royalgrace.cards.model;
+
+import org.hibernate.id.uuid.UuidVersion7Strategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Insert throughput and primary key index size for random v4 keys against the time-ordered
+ * v7 keys the entities now use, stored as the entities store them: varchar(255). Each
+ * operation inserts one batch. Needs the same scratch database as the repository tests,
+ * {@code TEST_DATABASE_URL} (with {@code TEST_DATABASE_USERNAME} and
+ * {@code TEST_DATABASE_PASSWORD}); the index size per row is printed after each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class UuidKeyInsertBenchmark {
+
+    public enum Keys {
+        V4 {
+            @Override
+            String next() {
+                return UUID.randomUUID().toString();
+            }
+        },
+        V7 {
+            @Override
+            String next() {
+                return UuidVersion7Strategy.INSTANCE.generateUuid(null).toString();
+            }
+        };
+
+        abstract String next();
+    }
+
+    @Param({"V4", "V7"})
+    public Keys keys;
+
+    @Param({"100"})
+    public int batchSize;
+
+    private String table;
+
+    @Setup
+    public void createTable() throws SQLException {
+        table = "bench_" + keys.name().toLowerCase() + "_keys";
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + table);
+            statement.execute("CREATE TABLE " + table + " (id varchar(255) PRIMARY KEY, payload varchar(255))");
+        }
+    }
+
+    @TearDown
+    public void reportAndDrop() throws SQLException {
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            try (ResultSet rs = statement.executeQuery("SELECT pg_relation_size('" + table + "_pkey'), "
+                    + "(SELECT count(*) FROM " + table + ")")) {
+                rs.next();
+                long indexBytes = rs.getLong(1);
+                long rows = rs.getLong(2);
+                System.out.printf("%n%s: %d rows, primary key index %d bytes, %.1f bytes per row%n",
+                        keys, rows, indexBytes, rows == 0 ? 0.0 : (double) indexBytes / rows);
+            }
+            statement.execute("DROP TABLE " + table);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Session {
+
+        private Connection connection;
+        private PreparedStatement insert;
+
+        @Setup
+        public void open(UuidKeyInsertBenchmark benchmark) throws SQLException {
+            connection = connect();
+            insert = connection.prepareStatement("INSERT INTO " + benchmark.table + " (id, payload) VALUES (?, ?)");
+        }
+
+        @TearDown
+        public void close() throws SQLException {
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    public int[] insertBatch(Session session) throws SQLException {
+        for (int i = 0; i < batchSize; i++) {
+            session.insert.setString(1, keys.next());
+            session.insert.setString(2, "payload");
+            session.insert.addBatch();
+        }
+        return session.insert.executeBatch();
+    }
+
+    private static Connection connect() throws SQLException {
+        String url = System.getenv("TEST_DATABASE_URL");
+        if (url == null || url.isBlank()) {
+            throw new IllegalStateException("TEST_DATABASE_URL must point at a scratch database");
+        }
+        return DriverManager.getConnection(url,
+                Objects.requireNonNullElse(System.getenv("TEST_DATABASE_USERNAME"), "postgres"),
+                Objects.requireNonNullElse(System.getenv("TEST_DATABASE_PASSWORD"), ""));
+    }
+}
@@ -0,0 +1,127 @@
+package com.royalgrace.cards.search;
+
+import com.royalgrace.cards.model.Card;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The inverted index against the scan it replaced. {@code likeScan} does in memory what
+ * {@code findByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCase} asks Postgres to do,
+ * a case-insensitive substring test on every name and description, without the round trip.
+ * {@code uncached} cycles through more distinct queries than the result cache holds, so every
+ * search ranks from the postings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CardSearchIndexBenchmark {
+
+    private static final int QUERIES = 512;
+    private static final String[] CATEGORIES = {
+            "birthday", "wedding", "sympathy", "holiday", "graduation", "thank-you", "anniversary", "baby"
+    };
+
+    @Param({"1000", "10000"})
+    public int cards;
+
+    private List<Card> catalog;
+    private CardSearchIndex index;
+    private String[] queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        String[] vocabulary = vocabulary(random, 2000);
+
+        catalog = new ArrayList<>(cards);
+        for (int i = 0; i < cards; i++) {
+            Card card = new Card();
+            card.setId("card-" + i);
+            card.setName(words(random, vocabulary, 3));
+            card.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+            card.setDescription(words(random, vocabulary, 120));
+            catalog.add(card);
+        }
+
+        // what a user has typed so far: a whole word and the start of the next one
+        queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            String last = vocabulary[random.nextInt(vocabulary.length)];
+            queries[i] = vocabulary[random.nextInt(vocabulary.length)] + " "
+                    + last.substring(0, Math.min(last.length(), 3 + random.nextInt(3)));
+        }
+
+        index = new CardSearchIndex();
+        index.search(queries[0], () -> catalog);
+    }
+
+    @Benchmark
+    public List<String> cached() {
+        return index.search(queries[0], () -> catalog);
+    }
+
+    @Benchmark
+    public List<String> uncached() {
+        return index.search(nextQuery(), () -> catalog);
+    }
+
+    @Benchmark
+    public List<String> likeScan() {
+        String query = nextQuery().toLowerCase(Locale.ROOT);
+        List<String> ids = new ArrayList<>();
+        for (Card card : catalog) {
+            if (card.getName().toLowerCase(Locale.ROOT).contains(query)
+                    || card.getDescription().toLowerCase(Locale.ROOT).contains(query)) {
+                ids.add(card.getId());
+            }
+        }
+        return ids;
+    }
+
+    private String nextQuery() {
+        next = (next + 1) % QUERIES;
+        return queries[next];
+    }
+
+    private static String[] vocabulary(Random random, int size) {
+        String[] words = new String[size];
+        for (int i = 0; i < size; i++) {
+            char[] letters = new char[4 + random.nextInt(6)];
+            for (int j = 0; j < letters.length; j++) {
+                letters[j] = (char) ('a' + random.nextInt(26));
+            }
+            words[i] = new String(letters);
+        }
+        return words;
+    }
+
+    private static String words(Random random, String[] vocabulary, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(vocabulary[random.nextInt(vocabulary.length)]);
+        }
+        return text.toString();
+    }
+}
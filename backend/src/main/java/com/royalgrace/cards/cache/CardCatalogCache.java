@@ -0,0 +1,175 @@
+package com.royalgrace.cards.cache;
+
+import com.royalgrace.cards.model.Card;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Read-through, in-process cache of the card catalog.
+ * Entries are detached copies, so they can be served outside of a persistence context.
+ * Every write bumps {@link #version()}; loads that started before a write are discarded.
+ */
+@Component
+public class CardCatalogCache {
+
+    private final Map<String, Card> byId = new ConcurrentHashMap<>();
+    private final Map<String, Long> cardVersions = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private volatile List<Card> all;
+    private volatile long cardVersionFloor;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public CardCatalogCache(MeterRegistry meterRegistry) {
+        this.hits = Counter.builder("catalog.cache.requests")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("catalog.cache.requests")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("catalog.cache.size", byId, Map::size)
+                .register(meterRegistry);
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * Version of a single card: the catalog version at its last change, or 0 if
+     * it has not changed since startup.
+     */
+    public long version(String id) {
+        return Math.max(cardVersions.getOrDefault(id, 0L), cardVersionFloor);
+    }
+
+    public List<Card> getAll(Supplier<List<Card>> loader) {
+        List<Card> snapshot = all;
+        if (snapshot != null) {
+            hits.increment();
+            return snapshot;
+        }
+
+        misses.increment();
+        long observed = version.get();
+        List<Card> loaded = copyAll(loader.get());
+
+        synchronized (this) {
+            if (version.get() == observed) {
+                byId.clear();
+                loaded.forEach(card -> byId.put(card.getId(), card));
+                all = loaded;
+            }
+        }
+        return loaded;
+    }
+
+    public Optional<Card> get(String id, Function<String, Optional<Card>> loader) {
+        Card cached = byId.get(id);
+        if (cached != null) {
+            hits.increment();
+            return Optional.of(cached);
+        }
+        if (all != null) {
+            // the full catalog is loaded, so an unknown id does not exist
+            hits.increment();
+            return Optional.empty();
+        }
+
+        misses.increment();
+        long observed = version.get();
+        Optional<Card> loaded = loader.apply(id).map(CardCatalogCache::copy);
+
+        loaded.ifPresent(card -> {
+            synchronized (this) {
+                if (version.get() == observed) {
+                    byId.put(id, card);
+                }
+            }
+        });
+        return loaded;
+    }
+
+    /**
+     * Drops the card and the full listing now and again once the surrounding
+     * transaction commits, so readers never repopulate from uncommitted state.
+     */
+    public void evict(String id) {
+        doEvict(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    doEvict(id);
+                }
+            });
+        }
+    }
+
+    /**
+     * Drops everything, for bulk writes that bypass the per-card paths.
+     */
+    public void evictAll() {
+        doEvictAll();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    doEvictAll();
+                }
+            });
+        }
+    }
+
+    private synchronized void doEvictAll() {
+        cardVersionFloor = version.incrementAndGet();
+        all = null;
+        byId.clear();
+        cardVersions.clear();
+    }
+
+    private synchronized void doEvict(String id) {
+        cardVersions.put(id, version.incrementAndGet());
+        all = null;
+        byId.remove(id);
+    }
+
+    private static List<Card> copyAll(List<Card> cards) {
+        List<Card> copies = new ArrayList<>(cards.size());
+        for (Card card : cards) {
+            copies.add(copy(card));
+        }
+        return List.copyOf(copies);
+    }
+
+    private static Card copy(Card card) {
+        return new Card(
+                card.getId(),
+                card.getName(),
+                card.getDescription(),
+                card.getPrice(),
+                card.getImageUrl(),
+                card.getImages() == null ? List.of() : List.copyOf(card.getImages()),
+                card.getCategory(),
+                card.isInStock(),
+                card.getInventory(),
+                card.isSoldOut(),
+                card.getCreatedAt(),
+                card.getUpdatedAt()
+        );
+    }
+}
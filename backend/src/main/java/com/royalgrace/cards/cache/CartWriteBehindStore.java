@@ -0,0 +1,338 @@
+package com.royalgrace.cards.cache;
+
+import com.royalgrace.cards.repository.CartLineWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Write-behind buffer for carts, keyed by cart session id. Mutations are applied
+ * in memory and coalesced; a cart is written to Postgres at most once per flush
+ * interval, when it is evicted, when {@link #flush(String)} is called (checkout)
+ * and on shutdown.
+ * <p>
+ * Crash safety: a mutation is acknowledged before it is durable. If the process
+ * dies without a graceful shutdown, cart edits made since the last flush
+ * (at most {@code cart.write-behind.flush-interval-ms}) are lost and the cart
+ * reverts to its last flushed state. Orders are never affected: checkout flushes
+ * the cart synchronously before it reads it, and a failed flush keeps the cart
+ * dirty and retries on the next tick.
+ * <p>
+ * Evicted carts stay in memory until their flush succeeds. While the database is
+ * down they pile up, so once {@code cart.write-behind.max-pending} of them are
+ * waiting, carts that are not already buffered are turned away with a 503 instead
+ * of growing the heap.
+ * <p>
+ * The buffer is local to one instance, so with several replicas requests must be
+ * routed by the {@code CART_ID} cookie.
+ */
+@Component
+@ConditionalOnProperty(name = "cart.store", havingValue = "write-behind")
+@Slf4j
+public class CartWriteBehindStore {
+
+    private final CartLineWriter writer;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxCarts;
+    private final int maxPending;
+
+    // access ordered, guarded by this
+    private final LinkedHashMap<String, CartState> carts;
+    // evicted carts whose flush has not finished yet, guarded by this
+    private final Map<String, CartState> evicted = new HashMap<>();
+
+    private final ScheduledExecutorService flusher;
+
+    private final Counter mutations;
+    private final Counter writes;
+    private final Counter failures;
+    private final Counter rejected;
+
+    public CartWriteBehindStore(
+            CartLineWriter writer,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${cart.write-behind.max-carts:10000}") int maxCarts,
+            @Value("${cart.write-behind.max-pending:1000}") int maxPending,
+            @Value("${cart.write-behind.flush-interval-ms:2000}") long flushIntervalMs
+    ) {
+        this.writer = writer;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // a flush from checkout must not share checkout's fate: once written, the cart is clean
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.maxCarts = maxCarts;
+        this.maxPending = maxPending;
+        this.carts = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CartState> eldest) {
+                if (size() <= CartWriteBehindStore.this.maxCarts) {
+                    return false;
+                }
+                CartState state = eldest.getValue();
+                if (state.isDirty()) {
+                    String sessionId = eldest.getKey();
+                    evicted.put(sessionId, state);
+                    flusher.execute(() -> flushQuietly(sessionId, state));
+                }
+                return true;
+            }
+        };
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "cart-flush"));
+        this.flusher.scheduleWithFixedDelay(this::flushAll, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+
+        this.mutations = Counter.builder("cart.writebehind.mutations").register(meterRegistry);
+        this.writes = Counter.builder("cart.writebehind.writes").register(meterRegistry);
+        this.failures = Counter.builder("cart.writebehind.failures").register(meterRegistry);
+        this.rejected = Counter.builder("cart.writebehind.rejected")
+                .description("Carts turned away while too many evicted carts were waiting to be written")
+                .register(meterRegistry);
+        Gauge.builder("cart.writebehind.size", this, store -> store.size())
+                .register(meterRegistry);
+        Gauge.builder("cart.writebehind.dirty", this, store -> store.dirtyCount())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cart's lines (card id to quantity, in insertion order), loading
+     * them with {@code loader} on a miss. Returns empty when the cart exists neither
+     * here nor in the database.
+     */
+    public Optional<Map<String, Integer>> read(
+            String sessionId,
+            Function<String, Optional<Map<String, Integer>>> loader
+    ) {
+        return mutate(sessionId, loader, null);
+    }
+
+    /**
+     * Starts a new, empty cart. It is written on the next flush.
+     */
+    public synchronized void create(String sessionId) {
+        checkPending();
+        CartState state = new CartState(Map.of());
+        state.version++;
+        carts.put(sessionId, state);
+    }
+
+    /**
+     * Applies {@code mutation} to the cart's lines and returns the result. The cart
+     * is only marked dirty when the mutation completes normally.
+     */
+    public Optional<Map<String, Integer>> mutate(
+            String sessionId,
+            Function<String, Optional<Map<String, Integer>>> loader,
+            Consumer<Map<String, Integer>> mutation
+    ) {
+        while (true) {
+            synchronized (this) {
+                CartState state = attached(sessionId);
+                if (state != null) {
+                    if (mutation != null) {
+                        Map<String, Integer> lines = new LinkedHashMap<>(state.lines);
+                        mutation.accept(lines);
+                        state.lines = Collections.unmodifiableMap(lines);
+                        state.version++;
+                        mutations.increment();
+                    }
+                    return Optional.of(state.lines);
+                }
+            }
+
+            // loaded outside the lock; if another request loads the same cart meanwhile, the first one wins
+            Optional<Map<String, Integer>> loaded = loader.apply(sessionId);
+            if (loaded.isEmpty()) {
+                return Optional.empty();
+            }
+            synchronized (this) {
+                if (carts.containsKey(sessionId) || evicted.containsKey(sessionId)) {
+                    continue;
+                }
+                checkPending();
+                carts.put(sessionId, new CartState(Collections.unmodifiableMap(new LinkedHashMap<>(loaded.get()))));
+            }
+        }
+    }
+
+    /**
+     * Writes the cart to the database now, if it has unflushed changes.
+     */
+    public void flush(String sessionId) {
+        CartState state;
+        synchronized (this) {
+            state = carts.get(sessionId);
+            if (state == null) {
+                state = evicted.get(sessionId);
+            }
+        }
+        if (state != null) {
+            write(sessionId, state);
+        }
+    }
+
+    /**
+     * Drops the cart without writing it. Any flush already in progress completes
+     * first, so a following database delete cannot be undone by it.
+     */
+    public void discard(String sessionId) {
+        CartState state;
+        synchronized (this) {
+            state = carts.remove(sessionId);
+            CartState pending = evicted.remove(sessionId);
+            if (state == null) {
+                state = pending;
+            }
+        }
+        if (state == null) {
+            return;
+        }
+        state.flushLock.lock();
+        try {
+            synchronized (this) {
+                state.discarded = true;
+            }
+        } finally {
+            state.flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(30, TimeUnit.SECONDS);
+        flushAll();
+    }
+
+    // every new cart may evict a dirty one, so none are admitted while the backlog is full
+    private void checkPending() {
+        if (evicted.size() >= maxPending) {
+            rejected.increment();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Carts are temporarily unavailable");
+        }
+    }
+
+    private CartState attached(String sessionId) {
+        CartState state = carts.get(sessionId);
+        if (state == null) {
+            // still being flushed after eviction; adopt it rather than read a stale row
+            state = evicted.remove(sessionId);
+            if (state != null) {
+                carts.put(sessionId, state);
+            }
+        }
+        return state;
+    }
+
+    private void flushAll() {
+        List<Map.Entry<String, CartState>> dirty = new ArrayList<>();
+        synchronized (this) {
+            carts.forEach((sessionId, state) -> {
+                if (state.isDirty()) {
+                    dirty.add(Map.entry(sessionId, state));
+                }
+            });
+            evicted.forEach((sessionId, state) -> dirty.add(Map.entry(sessionId, state)));
+        }
+
+        for (Map.Entry<String, CartState> entry : dirty) {
+            flushQuietly(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void flushQuietly(String sessionId, CartState state) {
+        try {
+            write(sessionId, state);
+        } catch (RuntimeException e) {
+            // stays dirty and is retried on the next tick
+            log.error("Failed to flush cart {}: {}", sessionId, e.getMessage(), e);
+        }
+    }
+
+    private void write(String sessionId, CartState state) {
+        state.flushLock.lock();
+        try {
+            Map<String, Integer> lines;
+            long version;
+            synchronized (this) {
+                if (state.discarded || !state.isDirty()) {
+                    evicted.remove(sessionId, state);
+                    return;
+                }
+                lines = state.lines;
+                version = state.version;
+            }
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> writer.replace(sessionId, lines));
+            } catch (RuntimeException e) {
+                failures.increment();
+                throw e;
+            }
+            writes.increment();
+
+            synchronized (this) {
+                state.flushedVersion = version;
+                if (!state.isDirty()) {
+                    evicted.remove(sessionId, state);
+                }
+            }
+        } finally {
+            state.flushLock.unlock();
+        }
+    }
+
+    private synchronized int size() {
+        return carts.size() + evicted.size();
+    }
+
+    private synchronized long dirtyCount() {
+        return carts.values().stream().filter(CartState::isDirty).count() + evicted.size();
+    }
+
+    /**
+     * Fields are guarded by the store's monitor; {@link #flushLock} serializes
+     * database writes of the same cart.
+     */
+    private static final class CartState {
+
+        // immutable and replaced on every mutation, so it can be handed out and written without copying
+        private Map<String, Integer> lines;
+        private long version;
+        private long flushedVersion;
+        private boolean discarded;
+
+        private final ReentrantLock flushLock = new ReentrantLock();
+
+        private CartState(Map<String, Integer> lines) {
+            this.lines = lines;
+        }
+
+        private boolean isDirty() {
+            return version != flushedVersion;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.royalgrace.cards.cache;
+
+import com.royalgrace.cards.dto.CardSummaryResponse;
+import com.royalgrace.cards.util.ETagUtil;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The catalog listing as ready-to-send bytes, identity and gzip, rebuilt only
+ * when the catalog version moves. Requests in between write the same arrays.
+ */
+@Component
+public class CatalogSnapshotCache {
+
+    private final CardCatalogCache catalogCache;
+    private final JsonMapper jsonMapper;
+
+    private volatile Snapshot snapshot;
+
+    public CatalogSnapshotCache(CardCatalogCache catalogCache, JsonMapper jsonMapper) {
+        this.catalogCache = catalogCache;
+        this.jsonMapper = jsonMapper;
+    }
+
+    public Snapshot current(Supplier<List<CardSummaryResponse>> loader) {
+        Snapshot current = snapshot;
+        if (current != null && current.version() == catalogCache.version()) {
+            return current;
+        }
+        return rebuild(loader);
+    }
+
+    private synchronized Snapshot rebuild(Supplier<List<CardSummaryResponse>> loader) {
+        long version = catalogCache.version();
+        Snapshot current = snapshot;
+        if (current != null && current.version() == version) {
+            return current;
+        }
+
+        // tagged with the version read before loading, so the tag can only lag the bytes
+        byte[] json = jsonMapper.writeValueAsBytes(loader.get());
+        String etag = ETagUtil.of("cards", version);
+
+        Snapshot rebuilt = new Snapshot(version, etag, ETagUtil.of("cards-gz", version), json, gzip(json));
+        snapshot = rebuilt;
+        return rebuilt;
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public record Snapshot(
+            long version,
+            String etag,
+            String gzipEtag,
+            byte[] json,
+            byte[] gzip
+    ) {}
+}
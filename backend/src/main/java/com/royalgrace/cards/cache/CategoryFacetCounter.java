@@ -0,0 +1,130 @@
+package com.royalgrace.cards.cache;
+
+import com.royalgrace.cards.dto.CategoryFacetResponse;
+import com.royalgrace.cards.model.Card;
+import com.royalgrace.cards.util.TransactionUtil;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Per-category card counts, total and in stock, maintained incrementally from
+ * card writes so rendering the filters never scans the table.
+ */
+@Component
+public class CategoryFacetCounter {
+
+    private final Map<String, Membership> memberships = new HashMap<>();
+    private final Map<String, long[]> counts = new HashMap<>();
+
+    private long version;
+    private boolean built;
+
+    public List<CategoryFacetResponse> facets(Supplier<List<Card>> loader) {
+        ensureBuilt(loader);
+
+        synchronized (this) {
+            List<CategoryFacetResponse> facets = new ArrayList<>(counts.size());
+            counts.forEach((category, c) -> facets.add(new CategoryFacetResponse(category, c[0], c[1])));
+            facets.sort(Comparator.comparing(CategoryFacetResponse::category,
+                    Comparator.nullsLast(Comparator.naturalOrder())));
+            return facets;
+        }
+    }
+
+    public void update(Card card) {
+        update(card.getId(), card.getCategory(), card.isInStock());
+    }
+
+    /**
+     * For card rows written with plain SQL, where no entity is at hand.
+     */
+    public void update(String id, String category, boolean inStock) {
+        Membership membership = new Membership(category, inStock);
+
+        TransactionUtil.afterCommit(() -> {
+            synchronized (this) {
+                version++;
+                if (built) {
+                    subtract(memberships.put(id, membership));
+                    add(membership);
+                }
+            }
+        });
+    }
+
+    public void remove(String id) {
+        TransactionUtil.afterCommit(() -> {
+            synchronized (this) {
+                version++;
+                if (built) {
+                    subtract(memberships.remove(id));
+                }
+            }
+        });
+    }
+
+    public void reset() {
+        TransactionUtil.afterCommit(() -> {
+            synchronized (this) {
+                version++;
+                built = false;
+                memberships.clear();
+                counts.clear();
+            }
+        });
+    }
+
+    private void ensureBuilt(Supplier<List<Card>> loader) {
+        long observed;
+        synchronized (this) {
+            if (built) {
+                return;
+            }
+            observed = version;
+        }
+
+        List<Card> cards = loader.get();
+
+        synchronized (this) {
+            if (built || version != observed) {
+                return;
+            }
+            for (Card card : cards) {
+                Membership membership = new Membership(card.getCategory(), card.isInStock());
+                memberships.put(card.getId(), membership);
+                add(membership);
+            }
+            built = true;
+        }
+    }
+
+    private void add(Membership membership) {
+        long[] c = counts.computeIfAbsent(membership.category(), k -> new long[2]);
+        c[0]++;
+        if (membership.inStock()) {
+            c[1]++;
+        }
+    }
+
+    private void subtract(Membership membership) {
+        if (membership == null) {
+            return;
+        }
+        long[] c = counts.get(membership.category());
+        c[0]--;
+        if (membership.inStock()) {
+            c[1]--;
+        }
+        if (c[0] == 0) {
+            counts.remove(membership.category());
+        }
+    }
+
+    private record Membership(String category, boolean inStock) {}
+}
@@ -0,0 +1,140 @@
+package com.royalgrace.cards.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory copy of {@code cards.inventory} that admits or rejects reservations
+ * with a compare-and-set per card, before any row is locked. During a drop, buyers
+ * who cannot get stock are turned away here, and only admitted reservations go on
+ * to the conditional update in Postgres. Enabled with
+ * {@code inventory.ledger.enabled=true}.
+ * <p>
+ * The database stays authoritative: the ledger can only reject early, never sell
+ * stock the database does not have. It is rebuilt from the database at startup and
+ * reconciled every {@code inventory.ledger.reconcile-interval-ms}. Admin edits and
+ * imports update it once they commit; drift between reconciliations comes from
+ * races between concurrent updates.
+ * Each instance keeps its own ledger, so with several replicas each one may admit
+ * up to the full stock, and the database turns away the rest.
+ */
+@Component
+@ConditionalOnProperty(name = "inventory.ledger.enabled", havingValue = "true")
+@Slf4j
+public class InventoryLedger {
+
+    // counters are only ever updated in place, so callers holding one stay consistent
+    private final Map<String, AtomicInteger> available = new ConcurrentHashMap<>();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Counter admitted;
+    private final Counter rejected;
+    private final Counter drift;
+    private final Timer reconcileTimer;
+
+    public InventoryLedger(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+
+        this.admitted = Counter.builder("inventory.ledger.requests").tag("result", "admitted").register(meterRegistry);
+        this.rejected = Counter.builder("inventory.ledger.requests").tag("result", "rejected").register(meterRegistry);
+        this.drift = Counter.builder("inventory.ledger.drift")
+                .description("Cards whose counter disagreed with the database at reconciliation")
+                .register(meterRegistry);
+        this.reconcileTimer = Timer.builder("inventory.ledger.reconcile").register(meterRegistry);
+        Gauge.builder("inventory.ledger.size", available, Map::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Takes every quantity (card id to quantity) or none. Returns the cards without
+     * enough stock; empty means admitted. Cards the ledger has not loaded yet are
+     * admitted and left to the database.
+     */
+    public List<String> tryTake(SortedMap<String, Integer> quantities) {
+        List<String> taken = new ArrayList<>(quantities.size());
+        for (Map.Entry<String, Integer> line : quantities.entrySet()) {
+            AtomicInteger counter = available.get(line.getKey());
+            if (counter == null) {
+                continue;
+            }
+            int quantity = line.getValue();
+            int current;
+            do {
+                current = counter.get();
+                if (current < quantity) {
+                    for (String cardId : taken) {
+                        putBack(cardId, quantities.get(cardId));
+                    }
+                    rejected.increment();
+                    return List.of(line.getKey());
+                }
+            } while (!counter.compareAndSet(current, current - quantity));
+            taken.add(line.getKey());
+        }
+        admitted.increment();
+        return List.of();
+    }
+
+    public void putBack(String cardId, int quantity) {
+        AtomicInteger counter = available.get(cardId);
+        if (counter != null) {
+            counter.addAndGet(quantity);
+        }
+    }
+
+    /**
+     * Sets a card's counter to a value just committed to the database.
+     */
+    public void set(String cardId, int inventory) {
+        available.computeIfAbsent(cardId, id -> new AtomicInteger()).set(inventory);
+    }
+
+    /**
+     * Reloads every counter from the database; the first run, right after startup,
+     * builds the ledger.
+     */
+    @Scheduled(fixedDelayString = "${inventory.ledger.reconcile-interval-ms:10000}")
+    public void reconcile() {
+        reconcileTimer.record(() -> load(true));
+    }
+
+    /**
+     * Reloads every counter after a bulk change to the cards, such as an import.
+     * Differences are expected there and are not counted as drift.
+     */
+    public void reload() {
+        load(false);
+    }
+
+    private void load(boolean countDrift) {
+        Set<String> seen = new HashSet<>();
+        jdbcTemplate.query("SELECT id, inventory FROM cards", rs -> {
+            String cardId = rs.getString("id");
+            int inventory = rs.getInt("inventory");
+            seen.add(cardId);
+
+            AtomicInteger counter = available.computeIfAbsent(cardId, id -> new AtomicInteger(inventory));
+            if (counter.getAndSet(inventory) != inventory && countDrift) {
+                drift.increment();
+            }
+        });
+        available.keySet().retainAll(seen);
+    }
+}
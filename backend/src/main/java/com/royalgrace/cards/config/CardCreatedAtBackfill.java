@@ -0,0 +1,42 @@
+package com.royalgrace.cards.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.NonNull;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * NEWEST keyset pages order on cards.created_at, so it must never be null. ddl-auto: update
+ * creates new tables with NOT NULL but never tightens an existing column: this backfills rows
+ * older than the constraint from updated_at and then adds it, once.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CardCreatedAtBackfill implements CommandLineRunner {
+
+    private static final String IS_NULLABLE = """
+            SELECT count(*) FROM information_schema.columns
+            WHERE table_schema = current_schema() AND table_name = 'cards'
+              AND column_name = 'created_at' AND is_nullable = 'YES'
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    @Transactional
+    public void run(String @NonNull ... args) {
+        Integer nullable = jdbcTemplate.queryForObject(IS_NULLABLE, Integer.class);
+        if (nullable == null || nullable == 0) {
+            return;
+        }
+
+        int backfilled = jdbcTemplate.update(
+                "UPDATE cards SET created_at = COALESCE(updated_at, now()) WHERE created_at IS NULL");
+        jdbcTemplate.execute("ALTER TABLE cards ALTER COLUMN created_at SET NOT NULL");
+        log.info("Backfilled created_at on {} cards and made it NOT NULL", backfilled);
+    }
+}
@@ -44,7 +44,8 @@ public class WebSecurityConfig {
                                 "/api/customer/**",
                                 "/api/cart/**",
                                 "/api/orders/**",
-                                "/api/payment/**")
+                                "/api/payment/**",
+                                "/stripe-stub/**")
                         .permitAll()
                         .requestMatchers("/api/admin/**").hasRole("ADMIN")
                         .requestMatchers("/api/auth/**").permitAll()
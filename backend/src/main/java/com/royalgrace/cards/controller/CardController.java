@@ -1,11 +1,21 @@
 package com.royalgrace.cards.controller;
 
+import com.royalgrace.cards.cache.CatalogSnapshotCache;
+import com.royalgrace.cards.dto.CardPageRequest;
+import com.royalgrace.cards.dto.CardPageResponse;
+import com.royalgrace.cards.dto.CardSort;
+import com.royalgrace.cards.dto.CardSummaryResponse;
+import com.royalgrace.cards.dto.CategoryFacetResponse;
 import com.royalgrace.cards.model.Card;
 import com.royalgrace.cards.service.ICardService;
+import com.royalgrace.cards.util.ETagUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import java.util.List;
-import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/cards")
@@ -20,13 +30,72 @@ public class CardController {
     }
 
     @GetMapping
-    public List<Card> getAllCards() {
-        return cardService.getAllCards();
+    public ResponseEntity<byte[]> getAllCards(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        // pre-serialized and pre-compressed; nothing is encoded per request
+        CatalogSnapshotCache.Snapshot snapshot = cardService.getCatalogSnapshot();
+        boolean gzip = acceptsGzip(acceptEncoding);
+        String etag = gzip ? snapshot.gzipEtag() : snapshot.etag();
+
+        if (ETagUtil.matches(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(ETagUtil.REVALIDATE)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(gzip ? snapshot.gzip() : snapshot.json());
+    }
+
+    @GetMapping("/page")
+    public CardPageResponse getCardPage(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) Boolean inStock,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(defaultValue = "NEWEST") CardSort sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "24") int limit
+    ) {
+        return cardService.getCardPage(
+                new CardPageRequest(category, inStock, minPrice, maxPrice, sort, cursor, limit)
+        );
+    }
+
+    @GetMapping("/search")
+    public List<CardSummaryResponse> searchCards(@RequestParam("q") String query) {
+        return cardService.searchCards(query).stream()
+                .map(CardSummaryResponse::from)
+                .toList();
+    }
+
+    @GetMapping("/facets")
+    public List<CategoryFacetResponse> getCategoryFacets() {
+        return cardService.getCategoryFacets();
     }
 
     @GetMapping("/{id}")
-    public Optional<Card> getCardById(@PathVariable String id) {
-        return cardService.getCardById(id);
+    public ResponseEntity<Card> getCardById(
+            @PathVariable String id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        String etag = ETagUtil.of("card-" + id, cardService.getCardVersion(id));
+        if (ETagUtil.matches(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+        return cardService.getCardById(id)
+                .map(card -> ResponseEntity.ok()
+                        .eTag(etag)
+                        .cacheControl(ETagUtil.REVALIDATE)
+                        .body(card))
+                .orElseGet(() -> ResponseEntity.ok().build());
     }
 
     @PostMapping
@@ -43,4 +112,25 @@ public class CardController {
     public void deleteCard(@PathVariable String id) {
         cardService.deleteCard(id);
     }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                String q = parts.length > 1 ? parts[1].trim() : "";
+                return !q.startsWith("q=0") || q.matches("q=0\\.0*[1-9]\\d*");
+            }
+        }
+        return false;
+    }
+
+    private static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag)
+                .cacheControl(ETagUtil.REVALIDATE)
+                .build();
+    }
 }
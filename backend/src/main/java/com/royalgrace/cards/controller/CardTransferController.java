@@ -0,0 +1,43 @@
+package com.royalgrace.cards.controller;
+
+import com.royalgrace.cards.dto.CardImportResponse;
+import com.royalgrace.cards.service.ICardTransferService;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.Locale;
+
+@RestController
+@RequestMapping("/api/admin/cards")
+@RequiredArgsConstructor
+public class CardTransferController {
+
+    private final ICardTransferService cardTransferService;
+
+    @PostMapping("/import")
+    public CardImportResponse importCards(@RequestParam("file") MultipartFile file) throws IOException {
+        return cardTransferService.importCards(file);
+    }
+
+    @GetMapping("/export")
+    public void exportCards(
+            @RequestParam(defaultValue = "XLSX") ICardTransferService.Format format,
+            HttpServletResponse response
+    ) throws IOException {
+        String filename = "cards." + format.name().toLowerCase(Locale.ROOT);
+
+        response.setContentType(switch (format) {
+            case XLSX -> "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+            case CSV -> "text/csv;charset=UTF-8";
+        });
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(filename).build().toString());
+
+        cardTransferService.exportCards(format, response.getOutputStream());
+    }
+}
@@ -1,18 +1,20 @@
 package com.royalgrace.cards.controller;
 
 import com.royalgrace.cards.dto.AddItemRequest;
+import com.royalgrace.cards.dto.CartBatchRequest;
 import com.royalgrace.cards.dto.CartResponse;
 import com.royalgrace.cards.dto.UpdateQuantityRequest;
 import com.royalgrace.cards.service.ICartService;
-import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.Arrays;
-import java.util.Optional;
-
 @RestController
 @RequestMapping("/api/cart")
 @RequiredArgsConstructor
@@ -65,6 +67,22 @@ public class CartController {
         );
     }
 
+    // =====================
+    // BATCH UPDATE
+    // =====================
+    @PostMapping("/items/batch")
+    public CartResponse applyOperations(
+            @RequestBody CartBatchRequest requestBody,
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) {
+        return cartService.applyOperations(
+                request,
+                response,
+                requestBody.operations()
+        );
+    }
+
     // =====================
     // REMOVE ITEM
     // =====================
@@ -89,17 +107,20 @@ public class CartController {
             HttpServletRequest request,
             HttpServletResponse response
     ) {
-        // Safely handle null cookies
-        String sessionId = Arrays.stream(Optional.ofNullable(request.getCookies())
-                        .orElse(new Cookie[0]))
-                .filter(c -> "CART_ID".equals(c.getName()))
-                .map(Cookie::getValue)
-                .findFirst()
-                .orElse(null);
+        cartService.clearCart(request, response);
+    }
+
+    // invalid operations, unknown cards or lines, and quantities over the line limit
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleInvalidRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
 
-        if (sessionId != null) {
-            cartService.clearCart(sessionId);
-        }
+    // a batch raced another change to the same cart, either a version bump or a line
+    // inserted by a concurrent single add; the client can re-read and retry
+    @ExceptionHandler({OptimisticLockingFailureException.class, DataIntegrityViolationException.class})
+    public ResponseEntity<String> handleConcurrentUpdate(DataAccessException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("Cart was modified concurrently");
     }
 
 }
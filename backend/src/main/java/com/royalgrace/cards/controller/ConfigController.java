@@ -2,6 +2,10 @@ package com.royalgrace.cards.controller;
 
 import com.royalgrace.cards.model.AppConfig;
 import com.royalgrace.cards.service.IConfigService;
+import com.royalgrace.cards.util.ETagUtil;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -16,8 +20,20 @@ public class ConfigController {
     }
 
     @GetMapping({"/admin/config", "/customer/config"})
-    public AppConfig getConfig() throws Exception {
-        return configService.getConfig();
+    public ResponseEntity<AppConfig> getConfig(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) throws Exception {
+        String etag = ETagUtil.of("config", configService.getConfigVersion());
+        if (ETagUtil.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(ETagUtil.REVALIDATE)
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(ETagUtil.REVALIDATE)
+                .body(configService.getConfig());
     }
 
 
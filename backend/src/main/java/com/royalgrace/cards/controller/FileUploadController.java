@@ -1,54 +1,57 @@
 package com.royalgrace.cards.controller;
 
+import com.royalgrace.cards.dto.UploadedImageResponse;
+import com.royalgrace.cards.service.IImageService;
+import com.royalgrace.cards.service.IImageService.ImageVariant;
+import com.royalgrace.cards.service.IUploadStorage;
+import com.royalgrace.cards.util.ImageUrlUtil;
 import lombok.Getter;
 import lombok.Setter;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/upload")
 public class FileUploadController {
 
-    @Value("${upload.path:uploads}")
-    private String uploadPath;
+    private final IImageService imageService;
+    private final IUploadStorage storage;
 
-    @Value("${server.port:8080}")
-    private String serverPort;
-
-    @Value("${app.base-url:http://localhost:8080}")
-    private String baseUrl;
+    public FileUploadController(IImageService imageService, IUploadStorage storage) {
+        this.imageService = imageService;
+        this.storage = storage;
+    }
 
     @PostMapping
     public ResponseEntity<?> uploadFiles(@RequestParam("files") MultipartFile[] files) {
         List<String> uploadedUrls = new ArrayList<>();
+        List<UploadedImageResponse> images = new ArrayList<>();
 
         try {
-            Path root = Paths.get(uploadPath);
-            if (!Files.exists(root)) {
-                Files.createDirectories(root);
-            }
+            List<MultipartFile> nonEmpty = Arrays.stream(files)
+                    .filter(file -> !file.isEmpty())
+                    .toList();
 
-            for (MultipartFile file : files) {
-                if (file.isEmpty()) continue;
+            for (String storedName : imageService.storeAll(nonEmpty)) {
+                String url = storage.publicUrl(storedName);
 
-                String filename = UUID.randomUUID() + "_" + file.getOriginalFilename();
-                Files.copy(file.getInputStream(), root.resolve(filename));
-                
-                // Return the URL that will be served by Spring
-                uploadedUrls.add(baseUrl + "/uploads/" + filename);
+                // Return the public URLs; variants appear once the pipeline has run
+                uploadedUrls.add(url);
+                images.add(new UploadedImageResponse(
+                        url,
+                        ImageUrlUtil.variantUrl(url, ImageVariant.THUMBNAIL),
+                        ImageUrlUtil.variantUrl(url, ImageVariant.GRID),
+                        ImageUrlUtil.variantUrl(url, ImageVariant.DETAIL)
+                ));
             }
 
-            return ResponseEntity.ok(new UploadResponse(uploadedUrls));
+            return ResponseEntity.ok(new UploadResponse(uploadedUrls, images));
         } catch (IOException e) {
             return ResponseEntity.status(500).body("Could not upload the files: " + e.getMessage());
         }
@@ -58,9 +61,11 @@ public class FileUploadController {
     @Getter
     private static class UploadResponse {
         private List<String> urls;
+        private List<UploadedImageResponse> images;
 
-        public UploadResponse(List<String> urls) {
+        public UploadResponse(List<String> urls, List<UploadedImageResponse> images) {
             this.urls = urls;
+            this.images = images;
         }
 
     }
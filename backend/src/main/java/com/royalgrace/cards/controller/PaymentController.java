@@ -4,12 +4,15 @@ import com.royalgrace.cards.dto.CheckoutRequest;
 import com.royalgrace.cards.dto.CheckoutResponse;
 import com.royalgrace.cards.dto.QRCodeRequest;
 import com.royalgrace.cards.dto.QRCodeResponse;
+import com.royalgrace.cards.service.IIdempotencyService;
 import com.royalgrace.cards.service.IPaymentService;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -19,15 +22,29 @@ import org.springframework.web.bind.annotation.RestController;
 public class PaymentController {
 
     private final IPaymentService paymentService;
+    private final IIdempotencyService idempotencyService;
 
     @Autowired
-    public PaymentController(IPaymentService paymentService) {
+    public PaymentController(IPaymentService paymentService, IIdempotencyService idempotencyService) {
         this.paymentService = paymentService;
+        this.idempotencyService = idempotencyService;
     }
 
     @PostMapping("/checkout")
-    public CheckoutResponse checkout(@RequestBody CheckoutRequest request, HttpServletRequest httpServletRequest) throws Exception {
-        return paymentService.checkout(request, httpServletRequest);
+    public CheckoutResponse checkout(
+            @RequestBody CheckoutRequest request,
+            @RequestHeader(value = IIdempotencyService.HEADER, required = false) String idempotencyKey,
+            HttpServletRequest httpServletRequest,
+            HttpServletResponse httpServletResponse
+    ) throws Exception {
+        // retries and double-clicks replay the first response instead of creating another order
+        return idempotencyService.execute(
+                "checkout",
+                idempotencyKey,
+                request,
+                CheckoutResponse.class,
+                () -> paymentService.checkout(request, httpServletRequest, httpServletResponse)
+        );
     }
 
     @PostMapping("/qr-codes")
@@ -0,0 +1,77 @@
+package com.royalgrace.cards.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal stand-in for Stripe's Checkout Session API, for load-testing checkout
+ * offline. Enable with {@code stripe.stub.enabled=true} and point
+ * {@code stripe.api-base} at {@code http://localhost:${server.port}/stripe-stub}. Every
+ * request waits {@code stripe.stub.latency-ms}, and the returned session's URL
+ * leads straight to the success page. Never enable it in production.
+ */
+@RestController
+@RequestMapping("/stripe-stub")
+@ConditionalOnProperty(name = "stripe.stub.enabled", havingValue = "true")
+public class StripeStubController {
+
+    private static final Pattern METADATA = Pattern.compile("metadata\\[(.+)]");
+    private static final Pattern LINE_ITEM = Pattern.compile("line_items\\[(\\d+)]\\[quantity]");
+
+    @Value("${stripe.stub.latency-ms:200}")
+    private long latencyMs;
+
+    @PostMapping(value = "/v1/checkout/sessions", consumes = MediaType.APPLICATION_FORM_URLENCODED_VALUE)
+    public Map<String, Object> createSession(@RequestParam MultiValueMap<String, String> params) throws InterruptedException {
+        if (latencyMs > 0) {
+            Thread.sleep(latencyMs);
+        }
+
+        String id = "cs_test_stub_" + UUID.randomUUID().toString().replace("-", "");
+        Map<String, String> metadata = new LinkedHashMap<>();
+        long amountTotal = 0;
+        for (String name : params.keySet()) {
+            Matcher metadataKey = METADATA.matcher(name);
+            if (metadataKey.matches()) {
+                metadata.put(metadataKey.group(1), params.getFirst(name));
+            }
+            Matcher lineItem = LINE_ITEM.matcher(name);
+            if (lineItem.matches()) {
+                String unitAmount = params.getFirst("line_items[" + lineItem.group(1) + "][price_data][unit_amount]");
+                if (unitAmount != null) {
+                    amountTotal += Long.parseLong(unitAmount) * Long.parseLong(params.getFirst(name));
+                }
+            }
+        }
+        String successUrl = params.getFirst("success_url");
+
+        Map<String, Object> session = new LinkedHashMap<>();
+        session.put("id", id);
+        session.put("object", "checkout.session");
+        session.put("livemode", false);
+        session.put("created", Instant.now().getEpochSecond());
+        session.put("mode", params.getFirst("mode"));
+        session.put("status", "open");
+        session.put("payment_status", "unpaid");
+        session.put("currency", "usd");
+        session.put("amount_total", amountTotal);
+        session.put("metadata", metadata);
+        session.put("success_url", successUrl);
+        session.put("cancel_url", params.getFirst("cancel_url"));
+        session.put("url", successUrl == null ? null : successUrl.replace("{CHECKOUT_SESSION_ID}", id));
+        return session;
+    }
+}
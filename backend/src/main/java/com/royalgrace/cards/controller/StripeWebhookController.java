@@ -1,13 +1,11 @@
 package com.royalgrace.cards.controller;
 
-import com.royalgrace.cards.dto.UpdateOrderStatusRequest;
-import com.royalgrace.cards.model.Order;
-import com.royalgrace.cards.service.ICartService;
-import com.royalgrace.cards.service.INotificationService;
+import com.royalgrace.cards.job.WebhookEventWorker;
+import com.royalgrace.cards.repository.WebhookEventInbox;
 import com.stripe.model.Event;
+import com.stripe.model.StripeObject;
 import com.stripe.model.checkout.Session;
 import com.stripe.net.Webhook;
-import com.royalgrace.cards.service.IOrderService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
@@ -17,7 +15,11 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-
+/**
+ * Verifies Stripe events and queues them in the webhook inbox. The work happens
+ * in {@link WebhookEventWorker}, so Stripe is answered as soon as the event is
+ * stored, and redeliveries of the same event are dropped.
+ */
 @RestController
 @RequestMapping("/api/webhooks")
 @RequiredArgsConstructor
@@ -26,9 +28,8 @@ public class StripeWebhookController {
     @Value("${stripe.webhook.secret}")
     private String webhookSecret;
 
-    private final IOrderService orderService;
-    private final ICartService cartService;
-    private final INotificationService notificationService;
+    private final WebhookEventInbox inbox;
+    private final WebhookEventWorker worker;
 
     @PostMapping("/stripe")
     public ResponseEntity<String> handle(
@@ -38,36 +39,20 @@ public class StripeWebhookController {
 
         Event event = Webhook.constructEvent(payload, sig, webhookSecret);
 
-        if (!"checkout.session.completed".equals(event.getType())) {
+        if (!WebhookEventWorker.CHECKOUT_COMPLETED.equals(event.getType())) {
             return ResponseEntity.ok("Ignored");
         }
 
-        Session session = (Session) event.getDataObjectDeserializer()
-                .getObject()
-                .orElseThrow();
+        // events for the same order are processed in the order they arrive
+        StripeObject object = event.getDataObjectDeserializer().getObject().orElse(null);
+        String orderKey = object instanceof Session session && session.getMetadata() != null
+                ? session.getMetadata().get("orderId")
+                : null;
 
-        if (!"paid".equals(session.getPaymentStatus())) {
-            return ResponseEntity.ok("Not paid");
+        if (!inbox.enqueue(event.getId(), event.getType(), orderKey, payload)) {
+            return ResponseEntity.ok("Duplicate");
         }
-
-        String orderId = session.getMetadata().get("orderId");
-        String cartSessionId = session.getMetadata().get("cartSessionId");
-
-        orderService.updateOrderStatus(
-                orderId,
-                new UpdateOrderStatusRequest(Order.PaymentStatus.COMPLETED,
-                        Order.FulfillmentStatus.PENDING)
-        );
-
-        orderService.decrementInventory(orderId);
-        cartService.clearCart(cartSessionId);
-
-        //Send Email
-        orderService.getOrderById(orderId).ifPresent(order -> {
-            notificationService.sendOrderConfirmationEmail(order);
-        });
-        return ResponseEntity.ok("Processed");
+        worker.wakeUp();
+        return ResponseEntity.ok("Queued");
     }
 }
-
-
@@ -0,0 +1,9 @@
+package com.royalgrace.cards.dto;
+
+import java.util.List;
+
+public record CardImportResponse(
+        int imported,
+        int skipped,
+        List<String> errors
+) {}
@@ -0,0 +1,11 @@
+package com.royalgrace.cards.dto;
+
+public record CardPageRequest(
+        String category,
+        Boolean inStock,
+        Double minPrice,
+        Double maxPrice,
+        CardSort sort,
+        String cursor,
+        int limit
+) {}
@@ -0,0 +1,9 @@
+package com.royalgrace.cards.dto;
+
+import java.util.List;
+
+public record CardPageResponse(
+        List<CardSummaryResponse> items,
+        String nextCursor,
+        boolean hasNext
+) {}
@@ -0,0 +1,37 @@
+package com.royalgrace.cards.dto;
+
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+import java.util.function.Function;
+
+public enum CardSort {
+
+    NEWEST(Sort.Direction.DESC, "createdAt", LocalDateTime::parse),
+    PRICE_ASC(Sort.Direction.ASC, "price", Double::valueOf),
+    PRICE_DESC(Sort.Direction.DESC, "price", Double::valueOf),
+    NAME_ASC(Sort.Direction.ASC, "name", Function.identity());
+
+    private final Sort.Direction direction;
+    private final String property;
+    private final Function<String, ?> parser;
+
+    CardSort(Sort.Direction direction, String property, Function<String, ?> parser) {
+        this.direction = direction;
+        this.property = property;
+        this.parser = parser;
+    }
+
+    // id is always the tie-breaker so the keyset is unique and pages are stable
+    public Sort toSort() {
+        return Sort.by(direction, property).and(Sort.by(direction, "id"));
+    }
+
+    public String property() {
+        return property;
+    }
+
+    public Object parseKey(String value) {
+        return parser.apply(value);
+    }
+}
@@ -0,0 +1,38 @@
+package com.royalgrace.cards.dto;
+
+import com.royalgrace.cards.model.Card;
+import com.royalgrace.cards.service.IImageService.ImageVariant;
+import com.royalgrace.cards.util.ImageUrlUtil;
+
+import java.util.List;
+
+public record CardSummaryResponse(
+        String id,
+        String name,
+        String description,
+        double price,
+        String imageUrl,
+        String thumbnailUrl,
+        String gridUrl,
+        List<String> images,
+        String category,
+        boolean inStock,
+        int inventory
+) {
+
+    public static CardSummaryResponse from(Card card) {
+        return new CardSummaryResponse(
+                card.getId(),
+                card.getName(),
+                card.getDescription(),
+                card.getPrice(),
+                card.getImageUrl(),
+                ImageUrlUtil.variantUrl(card.getImageUrl(), ImageVariant.THUMBNAIL),
+                ImageUrlUtil.variantUrl(card.getImageUrl(), ImageVariant.GRID),
+                card.getImages() == null ? List.of() : List.copyOf(card.getImages()),
+                card.getCategory(),
+                card.isInStock(),
+                card.getInventory() != null ? card.getInventory() : 0
+        );
+    }
+}
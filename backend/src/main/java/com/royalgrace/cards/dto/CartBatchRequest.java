@@ -0,0 +1,5 @@
+package com.royalgrace.cards.dto;
+
+import java.util.List;
+
+public record CartBatchRequest(List<CartOperation> operations) {}
@@ -0,0 +1,83 @@
+package com.royalgrace.cards.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One step of a batch cart update. ADD increases the quantity (by 1 when none is
+ * given), SET replaces it and REMOVE drops the line; SET to 0 or less removes,
+ * and removing a card that is not in the cart is a no-op.
+ */
+public record CartOperation(Type type, String cardId, Integer quantity) {
+
+    public static final int MAX_OPERATIONS = 100;
+    // most of one card a cart line may hold, which also keeps the arithmetic far from overflow
+    public static final int MAX_LINE_QUANTITY = 999;
+
+    public enum Type { ADD, SET, REMOVE }
+
+    public static void validate(List<CartOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new IllegalArgumentException("At least one operation is required");
+        }
+        if (operations.size() > MAX_OPERATIONS) {
+            throw new IllegalArgumentException("At most " + MAX_OPERATIONS + " operations are allowed");
+        }
+        for (CartOperation operation : operations) {
+            if (operation == null || operation.type() == null || operation.cardId() == null || operation.cardId().isBlank()) {
+                throw new IllegalArgumentException("Each operation needs a type and a cardId");
+            }
+            if (operation.type() == Type.ADD && operation.quantity() != null && operation.quantity() <= 0) {
+                throw new IllegalArgumentException("ADD quantity must be positive");
+            }
+            if (operation.type() == Type.SET && operation.quantity() == null) {
+                throw new IllegalArgumentException("SET requires a quantity");
+            }
+            if (operation.quantity() != null) {
+                checkQuantity(operation.quantity());
+            }
+        }
+    }
+
+    public static void checkQuantity(int quantity) {
+        if (quantity > MAX_LINE_QUANTITY) {
+            throw new IllegalArgumentException("A cart can hold at most " + MAX_LINE_QUANTITY + " of a card");
+        }
+    }
+
+    /**
+     * Adds {@code quantity} of the card to cart lines (card id to quantity), within
+     * {@link #MAX_LINE_QUANTITY}.
+     */
+    public static void add(Map<String, Integer> lines, String cardId, int quantity) {
+        long merged = (long) lines.getOrDefault(cardId, 0) + quantity;
+        if (merged > MAX_LINE_QUANTITY) {
+            throw new IllegalArgumentException("A cart can hold at most " + MAX_LINE_QUANTITY + " of a card");
+        }
+        lines.put(cardId, (int) merged);
+    }
+
+    /**
+     * Applies this operation to cart lines (card id to quantity).
+     */
+    public void applyTo(Map<String, Integer> lines) {
+        switch (type) {
+            case ADD -> add(lines, cardId, quantity == null ? 1 : quantity);
+            case SET -> {
+                if (quantity <= 0) {
+                    lines.remove(cardId);
+                } else {
+                    lines.put(cardId, quantity);
+                }
+            }
+            case REMOVE -> lines.remove(cardId);
+        }
+    }
+
+    /**
+     * Whether this operation can leave the card in the cart, i.e. the card must exist.
+     */
+    public boolean addsCard() {
+        return type == Type.ADD || (type == Type.SET && quantity > 0);
+    }
+}
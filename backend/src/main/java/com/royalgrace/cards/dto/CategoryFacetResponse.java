@@ -0,0 +1,7 @@
+package com.royalgrace.cards.dto;
+
+public record CategoryFacetResponse(
+        String category,
+        long total,
+        long inStock
+) {}
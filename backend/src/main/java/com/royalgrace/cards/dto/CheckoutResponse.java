@@ -1,12 +1,16 @@
 package com.royalgrace.cards.dto;
 
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Setter
 @Getter
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class CheckoutResponse {
     // Getters and Setters
     private String checkoutUrl;
@@ -0,0 +1,8 @@
+package com.royalgrace.cards.dto;
+
+public record UploadedImageResponse(
+        String original,
+        String thumbnail,
+        String grid,
+        String detail
+) {}
@@ -0,0 +1,114 @@
+package com.royalgrace.cards.gateway;
+
+import com.stripe.Stripe;
+import com.stripe.StripeClient;
+import com.stripe.exception.StripeException;
+import com.stripe.model.checkout.Session;
+import com.stripe.net.Authenticator;
+import com.stripe.net.BearerTokenAuthenticator;
+import com.stripe.net.LiveStripeResponseGetter;
+import com.stripe.net.RequestOptions;
+import com.stripe.net.StripeResponseGetterOptions;
+import com.stripe.param.checkout.SessionCreateParams;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.PasswordAuthentication;
+import java.net.Proxy;
+
+/**
+ * The only way the application talks to the Stripe API. Owns one
+ * {@link StripeClient} with its own connection pool, timeouts and retry budget,
+ * instead of the SDK's global {@code Stripe.apiKey} and default HTTP client.
+ * <p>
+ * Retries are done by the SDK: connection failures, 409s and responses Stripe marks
+ * as retryable are retried up to {@code stripe.max-network-retries} times with
+ * backoff. POSTs always carry an idempotency key, so a retry never creates a
+ * second session.
+ * <p>
+ * Point {@code stripe.api-base} at the local stub ({@code stripe.stub.enabled})
+ * to load-test checkout without calling Stripe.
+ */
+@Component
+public class StripeGateway {
+
+    private final StripeClient client;
+    private final MeterRegistry meterRegistry;
+
+    public StripeGateway(
+            MeterRegistry meterRegistry,
+            @Value("${stripe.api-key:}") String apiKey,
+            @Value("${stripe.api-base:" + Stripe.LIVE_API_BASE + "}") String apiBase,
+            @Value("${stripe.connect-timeout-ms:2000}") int connectTimeoutMs,
+            @Value("${stripe.read-timeout-ms:10000}") int readTimeoutMs,
+            @Value("${stripe.max-network-retries:2}") int maxNetworkRetries,
+            @Value("${stripe.max-connections:50}") int maxConnections
+    ) {
+        this.meterRegistry = meterRegistry;
+
+        // without a key the application still starts; calls then fail with an AuthenticationException
+        Options options = new Options(
+                apiKey == null || apiKey.isBlank() ? null : new BearerTokenAuthenticator(apiKey),
+                connectTimeoutMs,
+                readTimeoutMs,
+                maxNetworkRetries,
+                apiBase
+        );
+        StripeHttpClient httpClient = new StripeHttpClient(connectTimeoutMs, maxConnections, meterRegistry);
+        this.client = new StripeClient(new LiveStripeResponseGetter(options, httpClient));
+    }
+
+    public Session createCheckoutSession(SessionCreateParams params, String idempotencyKey) throws StripeException {
+        RequestOptions.RequestOptionsBuilder options = RequestOptions.builder();
+        if (idempotencyKey != null) {
+            options.setIdempotencyKey(idempotencyKey);
+        }
+        return call("checkout.session.create", () -> client.v1().checkout().sessions().create(params, options.build()));
+    }
+
+    private <T> T call(String operation, StripeCall<T> call) throws StripeException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        try {
+            return call.execute();
+        } catch (StripeException | RuntimeException e) {
+            outcome = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("stripe.calls")
+                    .description("Stripe API calls, including the SDK's retries")
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    @FunctionalInterface
+    private interface StripeCall<T> {
+        T execute() throws StripeException;
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static final class Options extends StripeResponseGetterOptions {
+
+        private final Authenticator authenticator;
+        private final int connectTimeout;
+        private final int readTimeout;
+        private final int maxNetworkRetries;
+        private final String apiBase;
+
+        private final String clientId = null;
+        private final Proxy connectionProxy = null;
+        private final PasswordAuthentication proxyCredential = null;
+        private final String filesBase = Stripe.UPLOAD_API_BASE;
+        private final String connectBase = Stripe.CONNECT_API_BASE;
+        private final String meterEventsBase = Stripe.METER_EVENTS_API_BASE;
+        private final String stripeAccount = null;
+        private final String stripeContext = null;
+    }
+}
@@ -0,0 +1,98 @@
+package com.royalgrace.cards.gateway;
+
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.net.HttpClient;
+import com.stripe.net.HttpContent;
+import com.stripe.net.HttpHeaders;
+import com.stripe.net.StripeRequest;
+import com.stripe.net.StripeResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends the SDK's requests over one shared {@link java.net.http.HttpClient}, which
+ * keeps connections to Stripe alive between calls (HTTP/2 where available). In-flight
+ * requests are capped at {@code stripe.max-connections}; a caller that cannot get a
+ * slot within the connect timeout fails like a connection error.
+ */
+final class StripeHttpClient extends HttpClient {
+
+    private final java.net.http.HttpClient client;
+    private final Semaphore permits;
+    private final long acquireTimeoutMs;
+    private final MeterRegistry meterRegistry;
+
+    StripeHttpClient(int connectTimeoutMs, int maxConnections, MeterRegistry meterRegistry) {
+        this.client = java.net.http.HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(java.net.http.HttpClient.Redirect.NEVER)
+                .build();
+        this.permits = new Semaphore(maxConnections);
+        this.acquireTimeoutMs = connectTimeoutMs;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public StripeResponse request(StripeRequest request) throws ApiConnectionException {
+        long start = System.nanoTime();
+        String status = "IO_ERROR";
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                status = "SATURATED";
+                throw new ApiConnectionException("No free connection to Stripe within " + acquireTimeoutMs + "ms");
+            }
+            try {
+                HttpResponse<String> response = client.send(build(request), HttpResponse.BodyHandlers.ofString());
+                status = String.valueOf(response.statusCode());
+                return new StripeResponse(response.statusCode(), HttpHeaders.of(response.headers().map()), response.body());
+            } finally {
+                permits.release();
+            }
+        } catch (IOException e) {
+            throw new ApiConnectionException("IOException during API request to Stripe (" + request.url() + "): " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiConnectionException("Interrupted during API request to Stripe (" + request.url() + ")", e);
+        } finally {
+            // one sample per attempt, so retries show up here but not in stripe.calls
+            Timer.builder("stripe.http.requests")
+                    .tag("method", request.method().name())
+                    .tag("status", status)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static HttpRequest build(StripeRequest request) throws ApiConnectionException {
+        HttpRequest.Builder builder;
+        try {
+            builder = HttpRequest.newBuilder(request.url().toURI());
+        } catch (URISyntaxException e) {
+            throw new ApiConnectionException("Invalid Stripe URL " + request.url(), e);
+        }
+        builder.timeout(Duration.ofMillis(request.options().getReadTimeout()));
+
+        request.headers()
+                .withAdditionalHeader("User-Agent", buildUserAgentString(request))
+                .withAdditionalHeader("X-Stripe-Client-User-Agent", buildXStripeClientUserAgentString())
+                .map()
+                .forEach((name, values) -> values.forEach(value -> builder.header(name, value)));
+
+        HttpContent content = request.content();
+        if (content == null) {
+            builder.method(request.method().name(), HttpRequest.BodyPublishers.noBody());
+        } else {
+            builder.header("Content-Type", content.contentType());
+            builder.method(request.method().name(), HttpRequest.BodyPublishers.ofByteArray(content.byteArrayContent()));
+        }
+        return builder.build();
+    }
+}
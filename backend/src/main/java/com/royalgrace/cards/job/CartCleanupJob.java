@@ -1,22 +1,110 @@
 package com.royalgrace.cards.job;
 
-import com.royalgrace.cards.repository.CartRepository;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 
+/**
+ * Purges carts not touched for {@code cart.purge.ttl-hours}, together with their
+ * lines, in bounded batches. Each batch is one short statement that skips rows
+ * locked by live cart requests, so the purge never waits on shoppers and several
+ * instances can run it at the same time without deleting the same rows.
+ */
 @Component
-@RequiredArgsConstructor
+@Slf4j
 public class CartCleanupJob {
 
-    private final CartRepository cartRepository;
+    // the CTEs share one snapshot; foreign keys are checked at the end of the statement
+    private static final String PURGE_BATCH = """
+            WITH expired AS (
+                SELECT id FROM carts
+                WHERE updated_at < ?
+                ORDER BY updated_at
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            ), purged_items AS (
+                DELETE FROM cart_items WHERE cart_id IN (SELECT id FROM expired) RETURNING 1
+            ), purged_carts AS (
+                DELETE FROM carts WHERE id IN (SELECT id FROM expired) RETURNING 1
+            )
+            SELECT (SELECT count(*) FROM purged_carts) AS carts,
+                   (SELECT count(*) FROM purged_items) AS items
+            """;
 
-    @Scheduled(cron = "0 0 * * * *") // every hour
+    private final JdbcTemplate jdbcTemplate;
+    private final int ttlHours;
+    private final int batchSize;
+    private final long sleepMs;
+    private final int maxBatches;
+
+    private final Counter purgedCarts;
+    private final Counter purgedItems;
+    private final Timer batchTimer;
+
+    public CartCleanupJob(
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${cart.purge.ttl-hours:24}") int ttlHours,
+            @Value("${cart.purge.batch-size:500}") int batchSize,
+            @Value("${cart.purge.sleep-ms:100}") long sleepMs,
+            @Value("${cart.purge.max-batches:1000}") int maxBatches
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttlHours = ttlHours;
+        this.batchSize = batchSize;
+        this.sleepMs = sleepMs;
+        this.maxBatches = maxBatches;
+
+        this.purgedCarts = Counter.builder("cart.purge.rows")
+                .tag("table", "carts")
+                .register(meterRegistry);
+        this.purgedItems = Counter.builder("cart.purge.rows")
+                .tag("table", "cart_items")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("cart.purge.batch")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${cart.purge.cron:0 0 * * * *}") // every hour by default
     public void deleteExpiredCarts() {
-        LocalDateTime cutoff = LocalDateTime.now().minusHours(24);
-        cartRepository.deleteAllExpired(cutoff);
+        // fixed for the whole run, so carts that expire meanwhile wait for the next one
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusHours(ttlHours));
+        long carts = 0;
+
+        for (int batch = 0; batch < maxBatches; batch++) {
+            long deleted = purgeBatch(cutoff);
+            carts += deleted;
+            if (deleted < batchSize) {
+                break;
+            }
+            try {
+                // leaves room for other writers between batches
+                Thread.sleep(sleepMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        if (carts > 0) {
+            log.info("Purged {} expired carts", carts);
+        }
     }
-}
 
+    private long purgeBatch(Timestamp cutoff) {
+        return batchTimer.record(() -> jdbcTemplate.queryForObject(PURGE_BATCH, (rs, rowNum) -> {
+            long carts = rs.getLong("carts");
+            purgedCarts.increment(carts);
+            purgedItems.increment(rs.getLong("items"));
+            return carts;
+        }, cutoff, batchSize));
+    }
+}
@@ -0,0 +1,30 @@
+package com.royalgrace.cards.job;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+@Component
+public class IdempotencyKeyCleanupJob {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int ttlHours;
+
+    public IdempotencyKeyCleanupJob(
+            JdbcTemplate jdbcTemplate,
+            @Value("${idempotency.ttl-hours:24}") int ttlHours
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttlHours = ttlHours;
+    }
+
+    @Scheduled(cron = "0 30 * * * *") // every hour, offset from the cart purge
+    public void deleteExpiredKeys() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusHours(ttlHours));
+        jdbcTemplate.update("DELETE FROM idempotency_keys WHERE created_at < ?", cutoff);
+    }
+}
@@ -0,0 +1,47 @@
+package com.royalgrace.cards.job;
+
+import com.royalgrace.cards.service.IInventoryService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Puts stock held by unpaid, expired checkouts back on sale. Each batch is its
+ * own transaction and skips reservations locked by a payment in progress, so
+ * several instances can run it at once.
+ */
+@Component
+@Slf4j
+public class InventoryReservationJob {
+
+    private final IInventoryService inventoryService;
+    private final int batchSize;
+    private final int maxBatches;
+
+    public InventoryReservationJob(
+            IInventoryService inventoryService,
+            @Value("${inventory.release.batch-size:500}") int batchSize,
+            @Value("${inventory.release.max-batches:100}") int maxBatches
+    ) {
+        this.inventoryService = inventoryService;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.release.interval-ms:60000}")
+    public void releaseExpiredReservations() {
+        long lines = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            int released = inventoryService.releaseExpired(batchSize);
+            lines += released;
+            if (released < batchSize) {
+                break;
+            }
+        }
+
+        if (lines > 0) {
+            log.info("Released {} expired inventory reservations", lines);
+        }
+    }
+}
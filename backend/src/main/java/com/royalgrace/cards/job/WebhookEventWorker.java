@@ -0,0 +1,274 @@
+package com.royalgrace.cards.job;
+
+import com.royalgrace.cards.dto.UpdateOrderStatusRequest;
+import com.royalgrace.cards.model.Order;
+import com.royalgrace.cards.repository.WebhookEventInbox;
+import com.royalgrace.cards.service.ICartService;
+import com.royalgrace.cards.service.INotificationService;
+import com.royalgrace.cards.service.IOrderService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Processes the Stripe events queued by the webhook endpoint. A single poller
+ * claims due events from {@link WebhookEventInbox} and hands them to a fixed pool
+ * of workers. A failed event is retried with exponential backoff, up to
+ * {@code webhook.max-attempts} times, and then marked FAILED. The inbox never hands
+ * out two events for the same order at once, and hands them out in the order they
+ * were received.
+ * <p>
+ * Delivery is at least once. Order updates are skipped when the order is already
+ * paid, so a retried event only sends the confirmation email again.
+ * <p>
+ * Polling starts once the application context has started, so no event is claimed
+ * before the beans that handle it are ready, and stops before they are destroyed.
+ */
+@Component
+@Slf4j
+public class WebhookEventWorker implements SmartLifecycle {
+
+    public static final String CHECKOUT_COMPLETED = "checkout.session.completed";
+
+    private final WebhookEventInbox inbox;
+    private final IOrderService orderService;
+    private final ICartService cartService;
+    private final INotificationService notificationService;
+    private final TransactionTemplate transactionTemplate;
+    private final JsonMapper jsonMapper;
+
+    private final int batchSize;
+    private final long leaseMs;
+    private final int maxAttempts;
+    private final long retryBaseMs;
+    private final long retryMaxMs;
+    private final int retentionDays;
+    private final long pollIntervalMs;
+
+    private final ScheduledExecutorService poller;
+    private final ExecutorService workers;
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean();
+    private volatile boolean running;
+
+    private final AtomicLong depth = new AtomicLong();
+    private final AtomicLong lagMs = new AtomicLong();
+    private final Counter processed;
+    private final Counter retried;
+    private final Counter failed;
+    private final Timer endToEnd;
+
+    public WebhookEventWorker(
+            WebhookEventInbox inbox,
+            IOrderService orderService,
+            ICartService cartService,
+            INotificationService notificationService,
+            PlatformTransactionManager transactionManager,
+            JsonMapper jsonMapper,
+            MeterRegistry meterRegistry,
+            @Value("${webhook.workers:4}") int workerCount,
+            @Value("${webhook.poll-interval-ms:1000}") long pollIntervalMs,
+            @Value("${webhook.lease-ms:300000}") long leaseMs,
+            @Value("${webhook.max-attempts:8}") int maxAttempts,
+            @Value("${webhook.retry-base-ms:5000}") long retryBaseMs,
+            @Value("${webhook.retry-max-ms:3600000}") long retryMaxMs,
+            @Value("${webhook.retention-days:30}") int retentionDays
+    ) {
+        this.inbox = inbox;
+        this.orderService = orderService;
+        this.cartService = cartService;
+        this.notificationService = notificationService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jsonMapper = jsonMapper;
+        this.batchSize = workerCount * 4;
+        this.leaseMs = leaseMs;
+        this.maxAttempts = maxAttempts;
+        this.retryBaseMs = retryBaseMs;
+        this.retryMaxMs = retryMaxMs;
+        this.retentionDays = retentionDays;
+        this.pollIntervalMs = pollIntervalMs;
+
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, r -> new Thread(r, "webhook-worker-" + threads.incrementAndGet()));
+        this.poller = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "webhook-poll"));
+
+        this.processed = Counter.builder("webhook.events").tag("outcome", "processed").register(meterRegistry);
+        this.retried = Counter.builder("webhook.events").tag("outcome", "retried").register(meterRegistry);
+        this.failed = Counter.builder("webhook.events").tag("outcome", "failed").register(meterRegistry);
+        this.endToEnd = Timer.builder("webhook.events.latency")
+                .description("Time from receiving an event to finishing it")
+                .register(meterRegistry);
+        Gauge.builder("webhook.inbox.depth", depth, AtomicLong::get)
+                .description("Events received but not yet processed")
+                .register(meterRegistry);
+        Gauge.builder("webhook.inbox.lag", lagMs, AtomicLong::get)
+                .description("Age of the oldest unprocessed event")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Polls now instead of at the next tick. Calls that arrive while a poll is
+     * already queued are merged into it.
+     */
+    public void wakeUp() {
+        if (running && wakeUpPending.compareAndSet(false, true)) {
+            poller.execute(() -> {
+                wakeUpPending.set(false);
+                pollQuietly();
+            });
+        }
+    }
+
+    @Scheduled(cron = "0 15 3 * * *") // nightly
+    public void purgeProcessed() {
+        int deleted = inbox.deleteProcessedBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (deleted > 0) {
+            log.info("Purged {} processed webhook events", deleted);
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        // events queued while the application was down are picked up right away
+        poller.scheduleWithFixedDelay(this::pollQuietly, 0, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        // claimed events that do not finish in time are picked up again when their lease runs out
+        poller.shutdown();
+        try {
+            // the poller may still be handing claimed events to the workers
+            poller.awaitTermination(30, TimeUnit.SECONDS);
+            workers.shutdown();
+            workers.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            workers.shutdown();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void pollQuietly() {
+        try {
+            poll();
+        } catch (RuntimeException e) {
+            log.error("Failed to poll webhook inbox: {}", e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void poll() throws InterruptedException {
+        List<WebhookEventInbox.Claimed> claimed;
+        do {
+            claimed = inbox.claim(batchSize, leaseMs);
+            List<Callable<Void>> tasks = new ArrayList<>(claimed.size());
+            for (WebhookEventInbox.Claimed event : claimed) {
+                tasks.add(() -> {
+                    process(event);
+                    return null;
+                });
+            }
+            workers.invokeAll(tasks);
+        } while (claimed.size() == batchSize);
+
+        WebhookEventInbox.Backlog backlog = inbox.backlog();
+        depth.set(backlog.depth());
+        lagMs.set(backlog.oldest()
+                .map(oldest -> Duration.between(oldest, LocalDateTime.now()).toMillis())
+                .orElse(0L));
+    }
+
+    private void process(WebhookEventInbox.Claimed event) {
+        try {
+            handle(event.type(), jsonMapper.readTree(event.payload()));
+            inbox.complete(event.id());
+            processed.increment();
+            endToEnd.record(Duration.between(event.receivedAt(), LocalDateTime.now()));
+        } catch (RuntimeException e) {
+            String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            if (event.attempts() >= maxAttempts) {
+                log.error("Giving up on webhook event {} after {} attempts: {}", event.id(), event.attempts(), error, e);
+                inbox.fail(event.id(), error);
+                failed.increment();
+            } else {
+                long delayMs = Math.min(retryMaxMs, retryBaseMs << Math.min(event.attempts() - 1, 20));
+                log.warn("Webhook event {} failed (attempt {}), retrying in {}ms: {}", event.id(), event.attempts(), delayMs, error);
+                inbox.retry(event.id(), delayMs, error);
+                retried.increment();
+            }
+        }
+    }
+
+    private void handle(String type, JsonNode event) {
+        if (!CHECKOUT_COMPLETED.equals(type)) {
+            return;
+        }
+
+        // the signature was verified on receipt; only the fields used here are read back
+        JsonNode session = event.path("data").path("object");
+        if (!"paid".equals(session.path("payment_status").stringValue(null))) {
+            return;
+        }
+
+        String orderId = session.path("metadata").path("orderId").stringValue(null);
+        String cartSessionId = session.path("metadata").path("cartSessionId").stringValue(null);
+        if (orderId == null) {
+            throw new IllegalArgumentException("Checkout session without orderId metadata");
+        }
+
+        Order order = transactionTemplate.execute(status -> {
+            Order current = orderService.getOrderById(orderId)
+                    .orElseThrow(() -> new IllegalArgumentException("Order not found: " + orderId));
+
+            // already applied by an earlier attempt
+            if (current.getPaymentStatus() != Order.PaymentStatus.COMPLETED) {
+                // also makes the order's reserved stock final
+                orderService.updateOrderStatus(
+                        orderId,
+                        new UpdateOrderStatusRequest(Order.PaymentStatus.COMPLETED,
+                                Order.FulfillmentStatus.PENDING)
+                );
+                cartService.clearCart(cartSessionId);
+            }
+
+            // the email template reads the items after the transaction has ended
+            Hibernate.initialize(current.getItems());
+            return current;
+        });
+
+        // outside the transaction, so a slow mail server holds no locks
+        notificationService.sendOrderConfirmationEmail(order);
+    }
+}
@@ -1,23 +1,35 @@
 package com.royalgrace.cards.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.UuidGenerator;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "cards")
+@Table(
+        name = "cards",
+        indexes = {
+                @Index(name = "idx_card_created_id", columnList = "created_at, id"),
+                @Index(name = "idx_card_price_id", columnList = "price, id"),
+                @Index(name = "idx_card_name_id", columnList = "name, id"),
+                @Index(name = "idx_card_category_price_id", columnList = "category, price, id"),
+                @Index(name = "idx_card_category_created_id", columnList = "category, created_at, id")
+        }
+)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Card {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidGenerator(style = UuidGenerator.Style.VERSION_7)
     private String id;
     
     @Column(nullable = false)
@@ -32,6 +44,7 @@ public class Card {
     private String imageUrl;
     
     @ElementCollection
+    @BatchSize(size = 100)
     @CollectionTable(name = "card_images", joinColumns = @JoinColumn(name = "card_id"))
     @Column(name = "image_url")
     private List<String> images = new ArrayList<>();
@@ -44,7 +57,13 @@ public class Card {
     @Column(nullable = false)
     private Integer inventory = 0;
     
-    @Column(updatable = false)
+    // set when orders took the last unit, so stock put back re-lists the card; any admin write clears it
+    @JsonIgnore
+    @Column(name = "sold_out", nullable = false, columnDefinition = "boolean default false")
+    private boolean soldOut;
+    
+    // NEWEST keyset pages order on it; see CardCreatedAtBackfill for tables created before
+    @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
     
     private LocalDateTime updatedAt;
@@ -3,20 +3,21 @@ package com.royalgrace.cards.model;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Index;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UuidGenerator;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -25,7 +26,10 @@ import java.util.List;
 @Entity
 @Table(
         name = "carts",
-        indexes = @Index(name = "idx_cart_session", columnList = "session_id")
+        indexes = {
+                @Index(name = "idx_cart_session", columnList = "session_id"),
+                @Index(name = "idx_cart_updated_at", columnList = "updated_at")
+        }
 )
 @Getter
 @Setter
@@ -35,7 +39,7 @@ import java.util.List;
 public class Cart {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidGenerator(style = UuidGenerator.Style.VERSION_7)
     private String id;
 
     @Column(name = "session_id", nullable = false, unique = true, updatable = false)
@@ -51,6 +55,11 @@ public class Cart {
     @Column(nullable = false)
     private LocalDateTime updatedAt;
 
+    @Version
+    @Column(nullable = false)
+    @ColumnDefault("0")
+    private long version;
+
     @PrePersist
     @PreUpdate
     void touch() {
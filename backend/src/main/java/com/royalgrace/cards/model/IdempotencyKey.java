@@ -0,0 +1,66 @@
+package com.royalgrace.cards.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A claimed Idempotency-Key and, once the request finished, its response.
+ * Written and read with plain SQL by the idempotency service; mapped here so the
+ * table is part of the schema.
+ */
+@Entity
+@Table(
+        name = "idempotency_keys",
+        indexes = @Index(name = "idx_idempotency_created_at", columnList = "created_at")
+)
+@Getter
+@Setter
+@NoArgsConstructor
+public class IdempotencyKey {
+
+    /**
+     * Scope and client key, e.g. {@code checkout:<key>}.
+     */
+    @Id
+    @Column(length = 320)
+    private String id;
+
+    /**
+     * Hash of the request body; a key may only be replayed for the same request.
+     */
+    @Column(nullable = false, length = 64)
+    private String fingerprint;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    @Column(columnDefinition = "text")
+    private String response;
+
+    /**
+     * Identifies the request holding the claim; only it may complete or release the key.
+     */
+    @Column(name = "lease_token", length = 36)
+    private String leaseToken;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    public enum Status {
+        IN_PROGRESS, COMPLETED
+    }
+}
@@ -0,0 +1,31 @@
+package com.royalgrace.cards.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Marks an order whose stock has been made final, so a payment status that goes
+ * back and forth cannot take it twice. Written with plain SQL by the inventory
+ * service; mapped here so the table is part of the schema.
+ */
+@Entity
+@Table(name = "inventory_commits")
+@Getter
+@Setter
+@NoArgsConstructor
+public class InventoryCommit {
+
+    @Id
+    @Column(name = "order_id")
+    private String orderId;
+
+    @Column(name = "committed_at", nullable = false)
+    private LocalDateTime committedAt;
+}
@@ -0,0 +1,49 @@
+package com.royalgrace.cards.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stock held for an unpaid order. The quantity has already been taken off
+ * {@code cards.inventory}; it is kept when the order is paid and put back when
+ * the reservation expires. Written with plain SQL by the inventory service;
+ * mapped here so the table is part of the schema.
+ */
+@Entity
+@Table(
+        name = "inventory_reservations",
+        uniqueConstraints = @UniqueConstraint(name = "uk_reservation_order_card", columnNames = {"order_id", "card_id"}),
+        indexes = @Index(name = "idx_reservation_expires_at", columnList = "expires_at")
+)
+@Getter
+@Setter
+@NoArgsConstructor
+public class InventoryReservation {
+
+    @Id
+    private String id;
+
+    @Column(name = "order_id", nullable = false)
+    private String orderId;
+
+    @Column(name = "card_id", nullable = false)
+    private String cardId;
+
+    @Column(nullable = false)
+    private int quantity;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,78 @@
+package com.royalgrace.cards.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A received webhook event waiting to be, or already, processed. Written and
+ * claimed with plain SQL by {@code WebhookEventInbox}; mapped here so the table is
+ * part of the schema.
+ */
+@Entity
+@Table(
+        name = "webhook_events",
+        indexes = {
+                @Index(name = "idx_webhook_status_available", columnList = "status, available_at"),
+                @Index(name = "idx_webhook_order_key", columnList = "order_key, received_at")
+        }
+)
+@Getter
+@Setter
+@NoArgsConstructor
+public class WebhookEvent {
+
+    /**
+     * The provider's event id, which makes redeliveries collapse into one row.
+     */
+    @Id
+    private String id;
+
+    @Column(nullable = false)
+    private String type;
+
+    /**
+     * Events with the same key are processed one at a time, in the order received.
+     */
+    @Column(name = "order_key")
+    private String orderKey;
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    /**
+     * When a pending event may next be tried, or when the lease on a processing
+     * event runs out.
+     */
+    @Column(name = "available_at", nullable = false)
+    private LocalDateTime availableAt;
+
+    @Column(name = "received_at", nullable = false)
+    private LocalDateTime receivedAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    @Column(name = "last_error", columnDefinition = "text")
+    private String lastError;
+
+    public enum Status {
+        PENDING, PROCESSING, DONE, FAILED
+    }
+}
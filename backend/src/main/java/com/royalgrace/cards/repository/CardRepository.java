@@ -2,11 +2,16 @@ package com.royalgrace.cards.repository;
 
 import com.royalgrace.cards.model.Card;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
-public interface CardRepository extends JpaRepository<Card, String> {
+public interface CardRepository extends JpaRepository<Card, String>, JpaSpecificationExecutor<Card> {
+    
+    @Query("SELECT DISTINCT c FROM Card c LEFT JOIN FETCH c.images")
+    List<Card> findAllWithImages();
     
     List<Card> findByCategory(String category);
     
@@ -0,0 +1,32 @@
+package com.royalgrace.cards.repository;
+
+import com.royalgrace.cards.dto.CardPageRequest;
+import com.royalgrace.cards.model.Card;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class CardSpecifications {
+
+    public static Specification<Card> matching(CardPageRequest request) {
+        List<Specification<Card>> specs = new ArrayList<>();
+
+        if (request.category() != null && !request.category().isBlank()) {
+            specs.add((root, query, cb) -> cb.equal(root.get("category"), request.category()));
+        }
+        if (request.inStock() != null) {
+            specs.add((root, query, cb) -> cb.equal(root.get("inStock"), request.inStock()));
+        }
+        if (request.minPrice() != null) {
+            specs.add((root, query, cb) -> cb.greaterThanOrEqualTo(root.get("price"), request.minPrice()));
+        }
+        if (request.maxPrice() != null) {
+            specs.add((root, query, cb) -> cb.lessThanOrEqualTo(root.get("price"), request.maxPrice()));
+        }
+
+        return Specification.allOf(specs);
+    }
+
+    private CardSpecifications() {}
+}
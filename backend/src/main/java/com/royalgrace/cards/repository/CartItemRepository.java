@@ -0,0 +1,47 @@
+package com.royalgrace.cards.repository;
+
+import com.royalgrace.cards.model.CartItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+/**
+ * Single-statement line mutations. They run against the database directly, so
+ * concurrent requests on the same cart neither lose increments nor trip the
+ * (cart_id, card_id) unique constraint. {@link #addQuantity} returns 0, and
+ * changes nothing, when the line would go over {@code maxQuantity}. The persistence context is cleared
+ * afterwards, so the cart must be re-read to see the result.
+ */
+public interface CartItemRepository extends JpaRepository<CartItem, String> {
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = """
+            INSERT INTO cart_items (id, cart_id, card_id, quantity)
+            VALUES (:id, :cartId, :cardId, :quantity)
+            ON CONFLICT (cart_id, card_id) DO UPDATE SET quantity = cart_items.quantity + EXCLUDED.quantity
+                WHERE cart_items.quantity + EXCLUDED.quantity <= :maxQuantity
+            """, nativeQuery = true)
+    int addQuantity(
+            @Param("id") String id,
+            @Param("cartId") String cartId,
+            @Param("cardId") String cardId,
+            @Param("quantity") int quantity,
+            @Param("maxQuantity") int maxQuantity
+    );
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE CartItem i SET i.quantity = :quantity WHERE i.cart.id = :cartId AND i.card.id = :cardId")
+    int setQuantity(
+            @Param("cartId") String cartId,
+            @Param("cardId") String cardId,
+            @Param("quantity") int quantity
+    );
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM CartItem i WHERE i.cart.id = :cartId AND i.card.id = :cardId")
+    int removeLine(
+            @Param("cartId") String cartId,
+            @Param("cardId") String cardId
+    );
+}
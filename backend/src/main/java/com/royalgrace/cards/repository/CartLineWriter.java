@@ -0,0 +1,62 @@
+package com.royalgrace.cards.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.id.uuid.UuidVersion7Strategy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a whole cart in a few statements, for carts that are held outside the
+ * persistence context (in memory or in a cookie) and persisted later.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CartLineWriter {
+
+    private static final String UPSERT_CART = """
+            INSERT INTO carts (id, session_id, updated_at, version)
+            VALUES (?, ?, ?, 0)
+            ON CONFLICT (session_id) DO UPDATE SET updated_at = EXCLUDED.updated_at, version = carts.version + 1
+            RETURNING id
+            """;
+
+    // cards deleted since the line was added are skipped instead of failing the write
+    private static final String INSERT_ITEM = """
+            INSERT INTO cart_items (id, cart_id, card_id, quantity)
+            SELECT ?, ?, c.id, ? FROM cards c WHERE c.id = ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Creates the cart if needed and replaces its lines (card id to quantity).
+     * Must run inside a transaction.
+     */
+    public void replace(String sessionId, Map<String, Integer> lines) {
+        String cartId = jdbcTemplate.queryForObject(
+                UPSERT_CART,
+                String.class,
+                newId(),
+                sessionId,
+                Timestamp.valueOf(LocalDateTime.now())
+        );
+
+        jdbcTemplate.update("DELETE FROM cart_items WHERE cart_id = ?", cartId);
+
+        List<Object[]> rows = new ArrayList<>(lines.size());
+        lines.forEach((cardId, quantity) -> rows.add(new Object[]{newId(), cartId, quantity, cardId}));
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ITEM, rows);
+        }
+    }
+
+    private static String newId() {
+        return UuidVersion7Strategy.INSTANCE.generateUuid(null).toString();
+    }
+}
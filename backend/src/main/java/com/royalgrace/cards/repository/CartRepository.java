@@ -14,11 +14,31 @@ public interface CartRepository extends JpaRepository<Cart, String> {
 
     Optional<Cart> findBySessionId(String sessionId);
 
-    void deleteBySessionId(String sessionId);
+    @Query("SELECT c.id FROM Cart c WHERE c.sessionId = :sessionId")
+    Optional<String> findIdBySessionId(@Param("sessionId") String sessionId);
+
+    /**
+     * Bumps the version after a line was changed by a direct statement, so an
+     * entity-based write that read the cart earlier fails instead of overwriting it.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Cart c SET c.version = c.version + 1, c.updatedAt = :now WHERE c.id = :id")
+    void touch(@Param("id") String id, @Param("now") LocalDateTime now);
+
+    /**
+     * Loads the cart, its lines and their cards in one statement. Item ids are
+     * time-ordered, so lines come back in the order they were added.
+     */
+    @Query("""
+            SELECT c FROM Cart c
+            LEFT JOIN FETCH c.items i
+            LEFT JOIN FETCH i.card
+            WHERE c.sessionId = :sessionId
+            ORDER BY i.id
+            """)
+    Optional<Cart> findWithItemsBySessionId(@Param("sessionId") String sessionId);
 
-    @Modifying
-    @Query("DELETE FROM Cart c WHERE c.updatedAt < :cutoff")
-    void deleteAllExpired(@Param("cutoff") LocalDateTime cutoff);
+    void deleteBySessionId(String sessionId);
 
 }
 
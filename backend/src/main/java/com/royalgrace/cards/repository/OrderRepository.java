@@ -22,4 +22,6 @@ public interface OrderRepository extends JpaRepository<Order, String> {
     List<Order> findByOrderByCreatedAtDesc();
 
     Order findOrderByPaymentSessionId(String paymentSessionId);
+
+    boolean existsByCartSessionIdAndPaymentStatus(String cartSessionId, Order.PaymentStatus paymentStatus);
 }
@@ -0,0 +1,139 @@
+package com.royalgrace.cards.repository;
+
+import com.royalgrace.cards.model.WebhookEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Durable queue of received webhook events, kept in {@code webhook_events}. Every
+ * statement runs on its own, so claims and results are visible to other instances
+ * as soon as they return.
+ */
+@Repository
+@RequiredArgsConstructor
+public class WebhookEventInbox {
+
+    /**
+     * Pending events that are due, plus processing events whose lease ran out
+     * (their worker died). An event is skipped while an earlier event for the same
+     * order is unfinished, so each order sees its events one at a time and in order.
+     */
+    private static final String CLAIM = """
+            WITH next AS (
+                SELECT e.id FROM webhook_events e
+                WHERE e.status IN ('PENDING', 'PROCESSING')
+                  AND e.available_at <= ?
+                  AND (e.order_key IS NULL OR NOT EXISTS (
+                      SELECT 1 FROM webhook_events p
+                      WHERE p.order_key = e.order_key
+                        AND p.status IN ('PENDING', 'PROCESSING')
+                        AND (p.received_at, p.id) < (e.received_at, e.id)
+                  ))
+                ORDER BY e.received_at
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            )
+            UPDATE webhook_events w
+            SET status = 'PROCESSING', available_at = ?, attempts = w.attempts + 1
+            FROM next
+            WHERE w.id = next.id
+            RETURNING w.id, w.type, w.payload, w.attempts, w.received_at
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Stores the event unless it was received before. Returns whether it is new.
+     */
+    public boolean enqueue(String id, String type, String orderKey, String payload) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.update(
+                """
+                INSERT INTO webhook_events (id, type, order_key, payload, status, attempts, available_at, received_at)
+                VALUES (?, ?, ?, ?, ?, 0, ?, ?)
+                ON CONFLICT (id) DO NOTHING
+                """,
+                id, type, orderKey, payload, WebhookEvent.Status.PENDING.name(), now, now
+        ) > 0;
+    }
+
+    /**
+     * Claims up to {@code limit} events for {@code leaseMs}. The claim must be
+     * completed, retried or failed before the lease runs out, or the event is handed
+     * out again.
+     */
+    public List<Claimed> claim(int limit, long leaseMs) {
+        LocalDateTime now = LocalDateTime.now();
+        return jdbcTemplate.query(
+                CLAIM,
+                (rs, rowNum) -> new Claimed(
+                        rs.getString("id"),
+                        rs.getString("type"),
+                        rs.getString("payload"),
+                        rs.getInt("attempts"),
+                        rs.getTimestamp("received_at").toLocalDateTime()
+                ),
+                Timestamp.valueOf(now),
+                limit,
+                Timestamp.valueOf(now.plusNanos(leaseMs * 1_000_000))
+        );
+    }
+
+    public void complete(String id) {
+        jdbcTemplate.update(
+                "UPDATE webhook_events SET status = ?, processed_at = ?, last_error = NULL WHERE id = ?",
+                WebhookEvent.Status.DONE.name(), Timestamp.valueOf(LocalDateTime.now()), id
+        );
+    }
+
+    public void retry(String id, long delayMs, String error) {
+        jdbcTemplate.update(
+                "UPDATE webhook_events SET status = ?, available_at = ?, last_error = ? WHERE id = ?",
+                WebhookEvent.Status.PENDING.name(),
+                Timestamp.valueOf(LocalDateTime.now().plusNanos(delayMs * 1_000_000)),
+                error,
+                id
+        );
+    }
+
+    /**
+     * Gives up on the event. It stays in the table for inspection and no longer
+     * holds back later events for its order.
+     */
+    public void fail(String id, String error) {
+        jdbcTemplate.update(
+                "UPDATE webhook_events SET status = ?, processed_at = ?, last_error = ? WHERE id = ?",
+                WebhookEvent.Status.FAILED.name(), Timestamp.valueOf(LocalDateTime.now()), error, id
+        );
+    }
+
+    /**
+     * Number of unfinished events and when the oldest of them was received.
+     */
+    public Backlog backlog() {
+        return jdbcTemplate.queryForObject(
+                "SELECT count(*) AS depth, min(received_at) AS oldest FROM webhook_events WHERE status IN ('PENDING', 'PROCESSING')",
+                (rs, rowNum) -> new Backlog(
+                        rs.getLong("depth"),
+                        Optional.ofNullable(rs.getTimestamp("oldest")).map(Timestamp::toLocalDateTime)
+                )
+        );
+    }
+
+    public int deleteProcessedBefore(LocalDateTime cutoff) {
+        return jdbcTemplate.update(
+                "DELETE FROM webhook_events WHERE status = ? AND processed_at < ?",
+                WebhookEvent.Status.DONE.name(), Timestamp.valueOf(cutoff)
+        );
+    }
+
+    public record Claimed(String id, String type, String payload, int attempts, LocalDateTime receivedAt) {}
+
+    public record Backlog(long depth, Optional<LocalDateTime> oldest) {}
+}
@@ -0,0 +1,215 @@
+package com.royalgrace.cards.search;
+
+import com.royalgrace.cards.model.Card;
+import com.royalgrace.cards.util.TransactionUtil;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over card name, category and description.
+ * Terms are case and accent folded; every query term must match and the last
+ * one is matched as a prefix so results are useful while the user is typing.
+ */
+@Component
+public class CardSearchIndex {
+
+    private static final float NAME_WEIGHT = 3f;
+    private static final float CATEGORY_WEIGHT = 2f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+    private static final int RESULT_CACHE_SIZE = 256;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // term -> (card id -> field weight)
+    private final NavigableMap<String, Map<String, Float>> postings = new TreeMap<>();
+    private final Map<String, Set<String>> termsByCard = new HashMap<>();
+    private final Map<String, List<String>> resultCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<String>> eldest) {
+            return size() > RESULT_CACHE_SIZE;
+        }
+    };
+
+    private long version;
+    private boolean built;
+
+    /**
+     * Returns matching card ids, best match first.
+     */
+    public List<String> search(String query, Supplier<List<Card>> loader) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        ensureBuilt(loader);
+
+        String key = String.join(" ", terms);
+        synchronized (this) {
+            List<String> cached = resultCache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            List<String> result = rank(terms);
+            resultCache.put(key, result);
+            return result;
+        }
+    }
+
+    public void index(Card card) {
+        TransactionUtil.afterCommit(() -> {
+            synchronized (this) {
+                version++;
+                if (built) {
+                    removeTerms(card.getId());
+                    addTerms(card);
+                    resultCache.clear();
+                }
+            }
+        });
+    }
+
+    public void remove(String id) {
+        TransactionUtil.afterCommit(() -> {
+            synchronized (this) {
+                version++;
+                if (built) {
+                    removeTerms(id);
+                    resultCache.clear();
+                }
+            }
+        });
+    }
+
+    public void reset() {
+        TransactionUtil.afterCommit(() -> {
+            synchronized (this) {
+                version++;
+                built = false;
+                postings.clear();
+                termsByCard.clear();
+                resultCache.clear();
+            }
+        });
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD))
+                .replaceAll("")
+                .toLowerCase(Locale.ROOT);
+
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_ALPHANUMERIC.split(folded)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private void ensureBuilt(Supplier<List<Card>> loader) {
+        long observed;
+        synchronized (this) {
+            if (built) {
+                return;
+            }
+            observed = version;
+        }
+
+        List<Card> cards = loader.get();
+
+        synchronized (this) {
+            // a write raced the load; leave the index unbuilt and rebuild on the next search
+            if (built || version != observed) {
+                return;
+            }
+            cards.forEach(this::addTerms);
+            built = true;
+        }
+    }
+
+    private List<String> rank(List<String> terms) {
+        Map<String, Float> scores = null;
+
+        for (int i = 0; i < terms.size(); i++) {
+            boolean prefix = i == terms.size() - 1;
+            Map<String, Float> termScores = scoreTerm(terms.get(i), prefix);
+
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                scores.keySet().retainAll(termScores.keySet());
+                scores.replaceAll((id, score) -> score + termScores.get(id));
+            }
+            if (scores.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        List<Map.Entry<String, Float>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Map.Entry.<String, Float>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey()));
+
+        List<String> ids = new ArrayList<>(ranked.size());
+        ranked.forEach(entry -> ids.add(entry.getKey()));
+        return Collections.unmodifiableList(ids);
+    }
+
+    private Map<String, Float> scoreTerm(String term, boolean prefix) {
+        Map<String, Map<String, Float>> matches = prefix
+                ? postings.subMap(term, true, term + Character.MAX_VALUE, false)
+                : postings.containsKey(term) ? Map.of(term, postings.get(term)) : Map.of();
+
+        int documents = Math.max(termsByCard.size(), 1);
+        Map<String, Float> scores = new HashMap<>();
+
+        matches.forEach((matched, cards) -> {
+            float idf = (float) Math.log(1 + (double) documents / cards.size());
+            // exact hits outrank prefix expansions of the same term
+            float boost = matched.equals(term) ? 1f : 0.5f;
+            cards.forEach((id, weight) -> scores.merge(id, weight * idf * boost, Float::max));
+        });
+        return scores;
+    }
+
+    private void addTerms(Card card) {
+        Map<String, Float> weights = new HashMap<>();
+        tokenize(card.getDescription()).forEach(t -> weights.merge(t, DESCRIPTION_WEIGHT, Float::max));
+        tokenize(card.getCategory()).forEach(t -> weights.merge(t, CATEGORY_WEIGHT, Float::max));
+        tokenize(card.getName()).forEach(t -> weights.merge(t, NAME_WEIGHT, Float::max));
+
+        weights.forEach((term, weight) ->
+                postings.computeIfAbsent(term, t -> new HashMap<>()).put(card.getId(), weight));
+        termsByCard.put(card.getId(), weights.keySet());
+    }
+
+    private void removeTerms(String id) {
+        Set<String> terms = termsByCard.remove(id);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Map<String, Float> cards = postings.get(term);
+            cards.remove(id);
+            if (cards.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+}
@@ -1,5 +1,10 @@
 package com.royalgrace.cards.service;
 
+import com.royalgrace.cards.cache.CatalogSnapshotCache;
+import com.royalgrace.cards.dto.CardPageRequest;
+import com.royalgrace.cards.dto.CardPageResponse;
+import com.royalgrace.cards.dto.CardSummaryResponse;
+import com.royalgrace.cards.dto.CategoryFacetResponse;
 import com.royalgrace.cards.model.Card;
 import java.util.List;
 import java.util.Optional;
@@ -8,6 +13,12 @@ public interface ICardService {
     
     List<Card> getAllCards();
     
+    List<CardSummaryResponse> getCardSummaries();
+    
+    CatalogSnapshotCache.Snapshot getCatalogSnapshot();
+    
+    CardPageResponse getCardPage(CardPageRequest request);
+    
     Optional<Card> getCardById(String id);
     
     List<Card> getCardsByCategory(String category);
@@ -16,6 +27,8 @@ public interface ICardService {
     
     List<Card> searchCards(String query);
     
+    List<CategoryFacetResponse> getCategoryFacets();
+    
     Card createCard(Card card);
     
     Card updateCard(String id, Card card);
@@ -23,4 +36,6 @@ public interface ICardService {
     void deleteCard(String id);
     
     boolean existsById(String id);
+    
+    long getCardVersion(String id);
 }
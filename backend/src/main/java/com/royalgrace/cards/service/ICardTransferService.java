@@ -0,0 +1,18 @@
+package com.royalgrace.cards.service;
+
+import com.royalgrace.cards.dto.CardImportResponse;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ICardTransferService {
+
+    CardImportResponse importCards(MultipartFile file) throws IOException;
+
+    void exportCards(Format format, OutputStream out) throws IOException;
+
+    enum Format {
+        XLSX, CSV
+    }
+}
@@ -1,12 +1,13 @@
 package com.royalgrace.cards.service;
 
 
-import com.royalgrace.cards.dto.CartResponse;
-
+import com.royalgrace.cards.dto.CartOperation;
 import com.royalgrace.cards.dto.CartResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
+import java.util.List;
+
 public interface ICartService {
 
     CartResponse getCart(
@@ -27,6 +28,15 @@ public interface ICartService {
             int quantity
     );
 
+    /**
+     * Applies the operations in order, all or nothing, and returns the resulting cart.
+     */
+    CartResponse applyOperations(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            List<CartOperation> operations
+    );
+
     default CartResponse removeItem(
             HttpServletRequest request,
             HttpServletResponse response,
@@ -37,5 +47,25 @@ public interface ICartService {
 
     void clearCart(String sessionId);
 
+    /**
+     * Clears the shopper's own cart.
+     */
+    default void clearCart(
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) {
+        clearCart(resolveSessionId(request));
+    }
+
+    /**
+     * Makes the cart durable in the database, including any buffered changes.
+     * Called when checkout begins.
+     */
+    default void flush(
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) {
+    }
+
     String resolveSessionId(HttpServletRequest request);
 }
@@ -7,4 +7,5 @@ public interface IConfigService {
 
     AppConfig updateConfig(AppConfig config);
     AppConfig getConfig() throws Exception;
+    long getConfigVersion();
 }
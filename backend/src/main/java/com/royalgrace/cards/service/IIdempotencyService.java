@@ -0,0 +1,16 @@
+package com.royalgrace.cards.service;
+
+import java.util.concurrent.Callable;
+
+public interface IIdempotencyService {
+
+    String HEADER = "Idempotency-Key";
+
+    /**
+     * Runs {@code action} at most once per {@code scope} and {@code key} across all
+     * instances, and replays its stored response for repeats. A repeat that arrives
+     * while the first request is still running waits for its result. Without a key
+     * the action simply runs.
+     */
+    <T> T execute(String scope, String key, Object request, Class<T> responseType, Callable<T> action) throws Exception;
+}
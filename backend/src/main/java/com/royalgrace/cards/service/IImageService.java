@@ -0,0 +1,42 @@
+package com.royalgrace.cards.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.List;
+
+public interface IImageService {
+
+    /**
+     * Stores the upload under its content hash and schedules its resized variants.
+     * Returns the stored file name; identical uploads resolve to the same name.
+     */
+    String store(MultipartFile file) throws IOException;
+
+    /**
+     * Stores several uploads concurrently; names are returned in the order of {@code files}.
+     */
+    List<String> storeAll(List<MultipartFile> files) throws IOException;
+
+    enum ImageVariant {
+        THUMBNAIL("thumb", 240),
+        GRID("grid", 600),
+        DETAIL("detail", 1200);
+
+        private final String suffix;
+        private final int maxWidth;
+
+        ImageVariant(String suffix, int maxWidth) {
+            this.suffix = suffix;
+            this.maxWidth = maxWidth;
+        }
+
+        public String suffix() {
+            return suffix;
+        }
+
+        public int maxWidth() {
+            return maxWidth;
+        }
+    }
+}
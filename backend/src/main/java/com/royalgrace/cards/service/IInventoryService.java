@@ -0,0 +1,40 @@
+package com.royalgrace.cards.service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Stock accounting for orders. {@code cards.inventory} is the quantity still for
+ * sale: checkout takes stock off it right away and holds it in a reservation until
+ * the order is paid or the reservation expires. Every change is a conditional
+ * update, so concurrent orders can never take the same unit.
+ */
+public interface IInventoryService {
+
+    /**
+     * Takes the lines' quantities off the cards' inventory and reserves them for
+     * the order. Either every line is reserved or an {@link IllegalStateException}
+     * is thrown and the surrounding transaction must roll back. Returns when the
+     * reservation expires.
+     */
+    LocalDateTime reserve(String orderId, List<IPricingService.Line> lines);
+
+    /**
+     * Makes the order's stock final once it is paid. Lines whose reservation already
+     * expired are taken off the inventory again; if there is not enough left, the
+     * line is oversold and logged rather than failing the paid order. Only the
+     * first call for an order has any effect.
+     */
+    void commit(String orderId, List<IPricingService.Line> lines);
+
+    /**
+     * Puts back the stock reserved for an order that will not be paid.
+     */
+    void release(String orderId);
+
+    /**
+     * Puts back up to {@code limit} expired reservation lines. Returns how many
+     * lines were released.
+     */
+    int releaseExpired(int limit);
+}
@@ -32,6 +32,10 @@ public interface IOrderService {
     
     boolean existsById(String id);
 
+    /**
+     * Makes the order's stock final. {@link #updateOrderStatus} already does this
+     * when an order becomes COMPLETED; call it only for orders paid by other means.
+     */
     void decrementInventory(String orderId);
 
     void sendOrderConfirmationEmail(String orderId, String customerEmail);
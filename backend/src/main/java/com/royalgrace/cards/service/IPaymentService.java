@@ -6,10 +6,15 @@ import com.royalgrace.cards.dto.QRCodeRequest;
 import com.royalgrace.cards.dto.QRCodeResponse;
 import com.royalgrace.cards.model.Order;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 public interface IPaymentService {
     
-    CheckoutResponse checkout(CheckoutRequest request, HttpServletRequest httpServletRequest) throws Exception;
+    CheckoutResponse checkout(
+            CheckoutRequest request,
+            HttpServletRequest httpServletRequest,
+            HttpServletResponse httpServletResponse
+    ) throws Exception;
 
     QRCodeResponse generateQRCodes(QRCodeRequest request);
 
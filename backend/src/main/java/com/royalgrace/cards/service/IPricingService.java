@@ -0,0 +1,20 @@
+package com.royalgrace.cards.service;
+
+import com.royalgrace.cards.model.Card;
+
+import java.util.List;
+
+public interface IPricingService {
+
+    /**
+     * Prices the lines against the current catalog and shipping config. All cards
+     * are loaded in one query; amounts are in cents. Lines come back in input order.
+     */
+    Quote quote(List<Line> lines) throws Exception;
+
+    record Line(String cardId, int quantity) {}
+
+    record PricedLine(Card card, int quantity, long unitCents, long lineCents) {}
+
+    record Quote(List<PricedLine> lines, long subtotalCents, long shippingCents, long totalCents) {}
+}
@@ -0,0 +1,32 @@
+package com.royalgrace.cards.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Optional;
+
+public interface IUploadStorage {
+
+    boolean exists(String name) throws IOException;
+
+    /**
+     * Streams {@code length} bytes into the object; the content is not buffered
+     * beyond what the backend's transport needs.
+     */
+    void put(String name, InputStream content, long length, String contentType) throws IOException;
+
+    InputStream open(String name) throws IOException;
+
+    String publicUrl(String name);
+
+    /**
+     * The file on local disk, when this backend has one, so it can be served zero-copy.
+     */
+    Optional<Path> localPath(String name);
+
+    /**
+     * Whether files live on local disk and are served by this application. A local
+     * file that {@link #localPath} cannot find does not exist.
+     */
+    boolean isLocal();
+}
@@ -1,13 +1,29 @@
 package com.royalgrace.cards.service.impl;
 
+import com.royalgrace.cards.cache.CardCatalogCache;
+import com.royalgrace.cards.cache.CatalogSnapshotCache;
+import com.royalgrace.cards.cache.CategoryFacetCounter;
+import com.royalgrace.cards.cache.InventoryLedger;
+import com.royalgrace.cards.dto.CardPageRequest;
+import com.royalgrace.cards.dto.CardPageResponse;
+import com.royalgrace.cards.dto.CardSort;
+import com.royalgrace.cards.dto.CardSummaryResponse;
+import com.royalgrace.cards.dto.CategoryFacetResponse;
 import com.royalgrace.cards.model.Card;
 import com.royalgrace.cards.repository.CardRepository;
+import com.royalgrace.cards.repository.CardSpecifications;
+import com.royalgrace.cards.search.CardSearchIndex;
+import com.royalgrace.cards.util.CardCursorUtil;
 import com.royalgrace.cards.service.ICardService;
+import com.royalgrace.cards.util.TransactionUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -15,46 +31,117 @@ import java.util.UUID;
 @Transactional
 public class CardServiceImpl implements ICardService {
     
+    private static final int MAX_PAGE_SIZE = 100;
+    
     private final CardRepository cardRepository;
+    private final CardCatalogCache catalogCache;
+    private final CardSearchIndex searchIndex;
+    private final CategoryFacetCounter facetCounter;
+    private final CatalogSnapshotCache snapshotCache;
+    private final InventoryLedger ledger;
     
     @Autowired
-    public CardServiceImpl(CardRepository cardRepository) {
+    public CardServiceImpl(CardRepository cardRepository, CardCatalogCache catalogCache, CardSearchIndex searchIndex,
+                           CategoryFacetCounter facetCounter, CatalogSnapshotCache snapshotCache,
+                           Optional<InventoryLedger> ledger) {
         this.cardRepository = cardRepository;
+        this.catalogCache = catalogCache;
+        this.searchIndex = searchIndex;
+        this.facetCounter = facetCounter;
+        this.snapshotCache = snapshotCache;
+        this.ledger = ledger.orElse(null);
     }
     
     @Override
     @Transactional(readOnly = true)
     public List<Card> getAllCards() {
-        return cardRepository.findAll();
+        return catalogCache.getAll(cardRepository::findAllWithImages);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public List<CardSummaryResponse> getCardSummaries() {
+        return getAllCards().stream()
+                .map(CardSummaryResponse::from)
+                .toList();
+    }
+    
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public CatalogSnapshotCache.Snapshot getCatalogSnapshot() {
+        return snapshotCache.current(this::getCardSummaries);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public CardPageResponse getCardPage(CardPageRequest request) {
+        CardSort sort = request.sort() != null ? request.sort() : CardSort.NEWEST;
+        int limit = Math.clamp(request.limit(), 1, MAX_PAGE_SIZE);
+
+        Window<Card> window = cardRepository.findBy(
+                CardSpecifications.matching(request),
+                query -> query.sortBy(sort.toSort())
+                        .limit(limit)
+                        .scroll(CardCursorUtil.decode(sort, request.cursor()))
+        );
+
+        String nextCursor = window.hasNext() && !window.isEmpty()
+                ? CardCursorUtil.encode(sort, window.positionAt(window.size() - 1))
+                : null;
+
+        // images are batch-fetched for the whole window, so this is one extra query, not one per card
+        List<CardSummaryResponse> items = window.getContent().stream()
+                .map(CardSummaryResponse::from)
+                .toList();
+
+        return new CardPageResponse(items, nextCursor, nextCursor != null);
     }
     
     @Override
     @Transactional(readOnly = true)
     public Optional<Card> getCardById(String id) {
-        return cardRepository.findById(id);
+        return catalogCache.get(id, cardRepository::findById);
     }
     
     @Override
     @Transactional(readOnly = true)
     public List<Card> getCardsByCategory(String category) {
-        return cardRepository.findByCategory(category);
+        return getAllCards().stream()
+                .filter(card -> Objects.equals(category, card.getCategory()))
+                .toList();
     }
     
     @Override
     @Transactional(readOnly = true)
     public List<Card> getInStockCards() {
-        return cardRepository.findByInStockTrue();
+        return getAllCards().stream()
+                .filter(Card::isInStock)
+                .toList();
     }
     
     @Override
     @Transactional(readOnly = true)
     public List<Card> searchCards(String query) {
-        return cardRepository.findByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCase(query, query);
+        return searchIndex.search(query, this::getAllCards).stream()
+                .map(this::getCardById)
+                .flatMap(Optional::stream)
+                .toList();
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public List<CategoryFacetResponse> getCategoryFacets() {
+        return facetCounter.facets(this::getAllCards);
     }
     
     @Override
     public Card createCard(Card card) {
-        return cardRepository.save(card);
+        Card saved = cardRepository.save(card);
+        catalogCache.evict(saved.getId());
+        searchIndex.index(saved);
+        facetCounter.update(saved);
+        setLedger(saved);
+        return saved;
     }
     
     @Override
@@ -63,7 +150,12 @@ public class CardServiceImpl implements ICardService {
             throw new IllegalArgumentException("Card not found with id: " + id);
         }
         card.setId(id);
-        return cardRepository.save(card);
+        Card saved = cardRepository.save(card);
+        catalogCache.evict(id);
+        searchIndex.index(saved);
+        facetCounter.update(saved);
+        setLedger(saved);
+        return saved;
     }
     
     @Override
@@ -72,6 +164,9 @@ public class CardServiceImpl implements ICardService {
             throw new IllegalArgumentException("Card not found with id: " + id);
         }
         cardRepository.deleteById(id);
+        catalogCache.evict(id);
+        searchIndex.remove(id);
+        facetCounter.remove(id);
     }
     
     @Override
@@ -79,4 +174,19 @@ public class CardServiceImpl implements ICardService {
     public boolean existsById(String id) {
         return cardRepository.existsById(id);
     }
+    
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public long getCardVersion(String id) {
+        return catalogCache.version(id);
+    }
+    
+    // admin restocks must reach the ledger before its next reconcile, or a drop turns buyers away
+    private void setLedger(Card card) {
+        if (ledger != null && card.getInventory() != null) {
+            String id = card.getId();
+            int inventory = card.getInventory();
+            TransactionUtil.afterCommit(() -> ledger.set(id, inventory));
+        }
+    }
 }
@@ -0,0 +1,439 @@
+package com.royalgrace.cards.service.impl;
+
+import com.royalgrace.cards.cache.CardCatalogCache;
+import com.royalgrace.cards.cache.CategoryFacetCounter;
+import com.royalgrace.cards.cache.InventoryLedger;
+import com.royalgrace.cards.dto.CardImportResponse;
+import com.royalgrace.cards.search.CardSearchIndex;
+import com.royalgrace.cards.service.ICardTransferService;
+import com.royalgrace.cards.util.CsvUtil;
+import com.royalgrace.cards.util.TransactionUtil;
+import lombok.RequiredArgsConstructor;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.hibernate.id.uuid.UuidVersion7Strategy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+public class CardTransferServiceImpl implements ICardTransferService {
+
+    private static final List<String> COLUMNS = List.of(
+            "id", "name", "description", "price", "imageUrl", "images", "category", "inStock", "inventory"
+    );
+    private static final int BATCH_SIZE = 500;
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final int SXSSF_WINDOW = 100;
+    // keeps every price, times any sane quantity, well inside the cents arithmetic
+    private static final BigDecimal MAX_PRICE = BigDecimal.valueOf(1_000_000);
+
+    private static final String UPSERT_CARD = """
+            INSERT INTO cards (id, name, description, price, image_url, category, in_stock, inventory, created_at, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, now(), now())
+            ON CONFLICT (id) DO UPDATE SET
+                name = EXCLUDED.name,
+                description = EXCLUDED.description,
+                price = EXCLUDED.price,
+                image_url = EXCLUDED.image_url,
+                category = EXCLUDED.category,
+                in_stock = EXCLUDED.in_stock,
+                inventory = EXCLUDED.inventory,
+                sold_out = false,
+                updated_at = now()
+            """;
+    private static final String DELETE_IMAGES = "DELETE FROM card_images WHERE card_id = ?";
+    private static final String INSERT_IMAGE = "INSERT INTO card_images (card_id, image_url) VALUES (?, ?)";
+    private static final String EXPORT_CARDS = """
+            SELECT c.id, c.name, c.description, c.price, c.image_url, c.category, c.in_stock, c.inventory,
+                   string_agg(ci.image_url, '|') AS images
+            FROM cards c
+            LEFT JOIN card_images ci ON ci.card_id = c.id
+            GROUP BY c.id
+            ORDER BY c.created_at, c.id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CardCatalogCache catalogCache;
+    private final CardSearchIndex searchIndex;
+    private final CategoryFacetCounter facetCounter;
+    private final Optional<InventoryLedger> ledger;
+
+    // =========================
+    // IMPORT
+    // =========================
+
+    @Override
+    @Transactional
+    public CardImportResponse importCards(MultipartFile file) throws IOException {
+        String filename = file.getOriginalFilename() != null
+                ? file.getOriginalFilename().toLowerCase(Locale.ROOT)
+                : "";
+
+        ImportBatch batch = new ImportBatch();
+        if (filename.endsWith(".csv")) {
+            importCsv(file, batch);
+        } else if (filename.endsWith(".xlsx")) {
+            importXlsx(file, batch);
+        } else {
+            throw new IllegalArgumentException("Unsupported file type, expected .csv or .xlsx");
+        }
+        batch.flush();
+
+        // bulk upserts bypass the per-card paths, so drop every derived view
+        catalogCache.evictAll();
+        searchIndex.reset();
+        facetCounter.reset();
+        ledger.ifPresent(l -> TransactionUtil.afterCommit(l::reload));
+
+        return new CardImportResponse(batch.imported, batch.skipped, batch.errors);
+    }
+
+    private void importCsv(MultipartFile file, ImportBatch batch) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+            int rowNumber = 0;
+            List<String> record;
+            while ((record = CsvUtil.readRecord(reader)) != null) {
+                batch.accept(++rowNumber, record);
+            }
+        }
+    }
+
+    private void importXlsx(MultipartFile file, ImportBatch batch) throws IOException {
+        // OPCPackage needs random access; opening a file keeps only the sheet being parsed in flight
+        Path workbook = Files.createTempFile("card-import", ".xlsx");
+        try {
+            file.transferTo(workbook);
+            try (OPCPackage pkg = OPCPackage.open(workbook.toFile(), PackageAccess.READ)) {
+                XSSFReader reader = new XSSFReader(pkg);
+                Iterator<InputStream> sheets = reader.getSheetsData();
+                if (!sheets.hasNext()) {
+                    return;
+                }
+
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(
+                        reader.getStylesTable(),
+                        null,
+                        new ReadOnlySharedStringsTable(pkg),
+                        new SheetRowHandler(batch),
+                        new DataFormatter(Locale.ROOT),
+                        false
+                ));
+                try (InputStream sheet = sheets.next()) {
+                    parser.parse(new InputSource(sheet));
+                }
+            } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+                throw new IOException("Could not read workbook: " + e.getMessage(), e);
+            }
+        } finally {
+            Files.deleteIfExists(workbook);
+        }
+    }
+
+    private static final class SheetRowHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final ImportBatch batch;
+        private final List<String> cells = new ArrayList<>();
+
+        SheetRowHandler(ImportBatch batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            cells.clear();
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            batch.accept(rowNum + 1, cells);
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            // blank cells are not reported, so place each value by its column
+            int column = new CellReference(cellReference).getCol();
+            while (cells.size() <= column) {
+                cells.add("");
+            }
+            cells.set(column, formattedValue);
+        }
+    }
+
+    private final class ImportBatch {
+
+        private Map<String, Integer> header;
+        private final List<ImportRow> rows = new ArrayList<>(BATCH_SIZE);
+        private final List<String> errors = new ArrayList<>();
+        private int imported;
+        private int skipped;
+
+        void accept(int rowNumber, List<String> record) {
+            if (header == null) {
+                header = new HashMap<>();
+                for (int i = 0; i < record.size(); i++) {
+                    header.put(record.get(i).trim().toLowerCase(Locale.ROOT), i);
+                }
+                if (!header.containsKey("name") || !header.containsKey("price")) {
+                    throw new IllegalArgumentException("Header must contain at least name and price columns");
+                }
+                return;
+            }
+            if (record.stream().allMatch(String::isBlank)) {
+                return;
+            }
+
+            try {
+                rows.add(parse(record));
+            } catch (IllegalArgumentException e) {
+                skipped++;
+                if (errors.size() < MAX_REPORTED_ERRORS) {
+                    errors.add("Row " + rowNumber + ": " + e.getMessage());
+                }
+                return;
+            }
+            if (rows.size() >= BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (rows.isEmpty()) {
+                return;
+            }
+
+            jdbcTemplate.batchUpdate(UPSERT_CARD, rows, rows.size(), (ps, row) -> {
+                ps.setString(1, row.id());
+                ps.setString(2, row.name());
+                ps.setString(3, row.description());
+                ps.setDouble(4, row.price());
+                ps.setString(5, row.imageUrl());
+                ps.setString(6, row.category());
+                ps.setBoolean(7, row.inStock());
+                ps.setInt(8, row.inventory());
+            });
+
+            if (header.containsKey("images")) {
+                jdbcTemplate.batchUpdate(DELETE_IMAGES, rows, rows.size(),
+                        (ps, row) -> ps.setString(1, row.id()));
+
+                List<String[]> images = new ArrayList<>();
+                rows.forEach(row -> row.images().forEach(url -> images.add(new String[]{row.id(), url})));
+                jdbcTemplate.batchUpdate(INSERT_IMAGE, images, images.size(), (ps, image) -> {
+                    ps.setString(1, image[0]);
+                    ps.setString(2, image[1]);
+                });
+            }
+
+            imported += rows.size();
+            rows.clear();
+        }
+
+        private ImportRow parse(List<String> record) {
+            String name = value(record, "name");
+            if (name == null) {
+                throw new IllegalArgumentException("name is required");
+            }
+            String priceValue = value(record, "price");
+            if (priceValue == null) {
+                throw new IllegalArgumentException("price is required");
+            }
+
+            String id = value(record, "id");
+            int inventory = parseInventory(value(record, "inventory"));
+            String inStock = value(record, "instock");
+            String images = value(record, "images");
+
+            return new ImportRow(
+                    id != null ? id : UuidVersion7Strategy.INSTANCE.generateUuid(null).toString(),
+                    name,
+                    value(record, "description"),
+                    parsePrice(priceValue),
+                    value(record, "imageurl"),
+                    images != null
+                            ? Arrays.stream(images.split("\\|")).map(String::trim).filter(s -> !s.isEmpty()).toList()
+                            : List.of(),
+                    value(record, "category"),
+                    inStock != null ? parseBoolean(inStock) : inventory > 0,
+                    inventory
+            );
+        }
+
+        private String value(List<String> record, String column) {
+            Integer index = header.get(column.toLowerCase(Locale.ROOT));
+            if (index == null || index >= record.size()) {
+                return null;
+            }
+            String value = record.get(index).trim();
+            return value.isEmpty() ? null : value;
+        }
+    }
+
+    // BigDecimal rejects NaN, Infinity and the hex and suffixed literals Double.parseDouble allows
+    private static double parsePrice(String value) {
+        BigDecimal price;
+        try {
+            price = new BigDecimal(value.replace("$", "").replace(",", ""));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid price '" + value + "'");
+        }
+        if (price.signum() < 0) {
+            throw new IllegalArgumentException("price must not be negative");
+        }
+        if (price.compareTo(MAX_PRICE) > 0) {
+            throw new IllegalArgumentException("price '" + value + "' is too large");
+        }
+        return price.doubleValue();
+    }
+
+    private static int parseInventory(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            // spreadsheets may write whole numbers as 5.0
+            int inventory = new BigDecimal(value.replace(",", "")).intValueExact();
+            if (inventory < 0) {
+                throw new IllegalArgumentException("inventory must not be negative");
+            }
+            return inventory;
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("invalid inventory '" + value + "'");
+        }
+    }
+
+    private static boolean parseBoolean(String value) {
+        return switch (value.toLowerCase(Locale.ROOT)) {
+            case "true", "yes", "y", "1" -> true;
+            case "false", "no", "n", "0" -> false;
+            default -> throw new IllegalArgumentException("invalid inStock '" + value + "'");
+        };
+    }
+
+    private record ImportRow(
+            String id,
+            String name,
+            String description,
+            double price,
+            String imageUrl,
+            List<String> images,
+            String category,
+            boolean inStock,
+            int inventory
+    ) {}
+
+    // =========================
+    // EXPORT
+    // =========================
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportCards(Format format, OutputStream out) throws IOException {
+        switch (format) {
+            case CSV -> exportCsv(out);
+            case XLSX -> exportXlsx(out);
+        }
+    }
+
+    private void exportCsv(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        CsvUtil.writeRecord(writer, COLUMNS);
+        streamCards(rs -> {
+            try {
+                CsvUtil.writeRecord(writer, toRecord(rs));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+    }
+
+    private void exportXlsx(OutputStream out) throws IOException {
+        // only the last SXSSF_WINDOW rows are held in memory; older rows are flushed to a temp file
+        try (SXSSFWorkbook workbook = new SXSSFWorkbook(SXSSF_WINDOW)) {
+            Sheet sheet = workbook.createSheet("cards");
+            writeRow(sheet.createRow(0), COLUMNS);
+
+            int[] rowIndex = {1};
+            streamCards(rs -> writeRow(sheet.createRow(rowIndex[0]++), toRecord(rs)));
+
+            workbook.write(out);
+        }
+    }
+
+    private void streamCards(RowCallbackHandler handler) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(EXPORT_CARDS);
+            // inside a transaction the Postgres driver uses a cursor instead of buffering every row
+            ps.setFetchSize(BATCH_SIZE);
+            return ps;
+        }, handler);
+    }
+
+    private static List<String> toRecord(ResultSet rs) throws SQLException {
+        return Arrays.asList(
+                rs.getString("id"),
+                rs.getString("name"),
+                rs.getString("description"),
+                Double.toString(rs.getDouble("price")),
+                rs.getString("image_url"),
+                rs.getString("images"),
+                rs.getString("category"),
+                Boolean.toString(rs.getBoolean("in_stock")),
+                Integer.toString(rs.getInt("inventory"))
+        );
+    }
+
+    private static void writeRow(Row row, List<String> values) {
+        for (int i = 0; i < values.size(); i++) {
+            if (values.get(i) != null) {
+                row.createCell(i).setCellValue(values.get(i));
+            }
+        }
+    }
+}
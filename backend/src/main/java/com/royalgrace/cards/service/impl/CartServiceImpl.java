@@ -1,44 +1,78 @@
 package com.royalgrace.cards.service.impl;
 
 import com.royalgrace.cards.dto.CartItemResponse;
+import com.royalgrace.cards.dto.CartOperation;
 import com.royalgrace.cards.dto.CartResponse;
 import com.royalgrace.cards.model.Card;
 import com.royalgrace.cards.model.Cart;
 import com.royalgrace.cards.model.CartItem;
 import com.royalgrace.cards.repository.CardRepository;
+import com.royalgrace.cards.repository.CartItemRepository;
 import com.royalgrace.cards.repository.CartRepository;
 import com.royalgrace.cards.service.ICartService;
 import com.royalgrace.cards.util.CartCookieUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
+import org.hibernate.id.uuid.UuidVersion7Strategy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
-@RequiredArgsConstructor
+@ConditionalOnProperty(name = "cart.store", havingValue = "jpa", matchIfMissing = true)
 @Transactional
 public class CartServiceImpl implements ICartService {
 
     private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
     private final CardRepository cardRepository;
+    private final Counter virtualCarts;
+
+    public CartServiceImpl(
+            CartRepository cartRepository,
+            CartItemRepository cartItemRepository,
+            CardRepository cardRepository,
+            MeterRegistry meterRegistry
+    ) {
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.cardRepository = cardRepository;
+        this.virtualCarts = Counter.builder("cart.materialization.avoided")
+                .description("Cart reads answered with a virtual empty cart instead of inserting a row")
+                .register(meterRegistry);
+    }
 
     // =========================
     // PUBLIC API
     // =========================
 
     @Override
+    @Transactional(readOnly = true)
     public CartResponse getCart(
             HttpServletRequest request,
             HttpServletResponse response
     ) {
-        return map(resolveCart(request, response));
+        // an empty cart is virtual; the row and cookie are created on the first mutation
+        return findCart(request)
+                .map(this::map)
+                .orElseGet(() -> {
+                    virtualCarts.increment();
+                    return new CartResponse(List.of(), 0, 0);
+                });
     }
 
     @Override
@@ -47,24 +81,24 @@ public class CartServiceImpl implements ICartService {
             HttpServletResponse response,
             String cardId
     ) {
-        Cart cart = resolveCart(request, response);
-        Card card = getCard(cardId);
+        getCard(cardId);
+        String sessionId = resolveSessionId(request);
+        String cartId = Optional.ofNullable(sessionId)
+                .flatMap(cartRepository::findIdBySessionId)
+                .orElse(null);
+        if (cartId == null) {
+            Cart created = createCart(response);
+            sessionId = created.getSessionId();
+            cartId = created.getId();
+        }
 
-        cart.getItems().stream()
-                .filter(i -> i.getCard().getId().equals(cardId))
-                .findFirst()
-                .ifPresentOrElse(
-                        i -> i.setQuantity(i.getQuantity() + 1),
-                        () -> cart.getItems().add(
-                                CartItem.builder()
-                                        .cart(cart)
-                                        .card(card)
-                                        .quantity(1)
-                                        .build()
-                        )
-                );
+        // one atomic upsert; parallel adds of the same card both count
+        if (cartItemRepository.addQuantity(newId(), cartId, cardId, 1, CartOperation.MAX_LINE_QUANTITY) == 0) {
+            throw new IllegalArgumentException("A cart can hold at most " + CartOperation.MAX_LINE_QUANTITY + " of a card");
+        }
+        cartRepository.touch(cartId, LocalDateTime.now());
 
-        return map(cart);
+        return reload(sessionId);
     }
 
     @Override
@@ -74,19 +108,74 @@ public class CartServiceImpl implements ICartService {
             String cardId,
             int quantity
     ) {
-        Cart cart = resolveCart(request, response);
-
-        CartItem item = cart.getItems().stream()
-                .filter(i -> i.getCard().getId().equals(cardId))
-                .findFirst()
+        CartOperation.checkQuantity(quantity);
+        String sessionId = resolveSessionId(request);
+        String cartId = Optional.ofNullable(sessionId)
+                .flatMap(cartRepository::findIdBySessionId)
                 .orElseThrow(() -> new IllegalArgumentException("Item not found"));
 
-        if (quantity <= 0) {
-            cart.getItems().remove(item);
-        } else {
-            item.setQuantity(quantity);
+        int changed = quantity <= 0
+                ? cartItemRepository.removeLine(cartId, cardId)
+                : cartItemRepository.setQuantity(cartId, cardId, quantity);
+        if (changed == 0) {
+            throw new IllegalArgumentException("Item not found");
+        }
+        cartRepository.touch(cartId, LocalDateTime.now());
+
+        return reload(sessionId);
+    }
+
+    @Override
+    public CartResponse applyOperations(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            List<CartOperation> operations
+    ) {
+        CartOperation.validate(operations);
+
+        Optional<Cart> existing = findCart(request);
+        Map<String, Integer> lines = new LinkedHashMap<>();
+        existing.ifPresent(cart -> cart.getItems()
+                .forEach(i -> lines.put(i.getCard().getId(), i.getQuantity())));
+        operations.forEach(operation -> operation.applyTo(lines));
+
+        if (existing.isEmpty() && lines.isEmpty()) {
+            return new CartResponse(List.of(), 0, 0);
         }
 
+        // cards new to the cart are loaded in one query
+        Set<String> newCardIds = new HashSet<>(lines.keySet());
+        existing.ifPresent(cart -> cart.getItems().forEach(i -> newCardIds.remove(i.getCard().getId())));
+        Map<String, Card> newCards = new HashMap<>();
+        cardRepository.findAllById(newCardIds).forEach(card -> newCards.put(card.getId(), card));
+        if (newCards.size() != newCardIds.size()) {
+            throw new IllegalArgumentException("Card not found");
+        }
+
+        Cart cart = existing.orElseGet(() -> createCart(response));
+
+        cart.getItems().removeIf(i -> !lines.containsKey(i.getCard().getId()));
+        Map<String, CartItem> itemsByCard = new HashMap<>();
+        cart.getItems().forEach(i -> itemsByCard.put(i.getCard().getId(), i));
+
+        lines.forEach((cardId, quantity) -> {
+            CartItem item = itemsByCard.get(cardId);
+            if (item != null) {
+                item.setQuantity(quantity);
+            } else {
+                cart.getItems().add(
+                        CartItem.builder()
+                                .cart(cart)
+                                .card(newCards.get(cardId))
+                                .quantity(quantity)
+                                .build()
+                );
+            }
+        });
+
+        // dirties the cart, so the version check catches a concurrent line change
+        cart.setUpdatedAt(LocalDateTime.now());
+
         return map(cart);
     }
 
@@ -113,13 +202,16 @@ public class CartServiceImpl implements ICartService {
     // CART RESOLUTION
     // =========================
 
-    private Cart resolveCart(
-            HttpServletRequest request,
-            HttpServletResponse response
-    ) {
+    private Optional<Cart> findCart(HttpServletRequest request) {
+        // one query for cart, lines and cards; map() then touches no lazy associations
         return Optional.ofNullable(resolveSessionId(request))
-                .flatMap(cartRepository::findBySessionId)
-                .orElseGet(() -> createCart(response));
+                .flatMap(cartRepository::findWithItemsBySessionId);
+    }
+
+    private CartResponse reload(String sessionId) {
+        return cartRepository.findWithItemsBySessionId(sessionId)
+                .map(this::map)
+                .orElseGet(() -> new CartResponse(List.of(), 0, 0));
     }
 
     private Cart createCart(HttpServletResponse response) {
@@ -140,6 +232,10 @@ public class CartServiceImpl implements ICartService {
     // HELPERS
     // =========================
 
+    private static String newId() {
+        return UuidVersion7Strategy.INSTANCE.generateUuid(null).toString();
+    }
+
     private Card getCard(String cardId) {
         return cardRepository.findById(cardId)
                 .orElseThrow(() -> new IllegalArgumentException("Card not found"));
@@ -5,15 +5,20 @@ import com.royalgrace.cards.repository.ConfigRepository;
 import com.royalgrace.cards.service.IConfigService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 @Transactional
 public class ConfigServiceImpl implements IConfigService {
     
     private final ConfigRepository configRepository;
+    private final AtomicLong version = new AtomicLong();
     
     @Autowired
     public ConfigServiceImpl(ConfigRepository settingsRepository) {
@@ -26,6 +31,7 @@ public class ConfigServiceImpl implements IConfigService {
     public AppConfig updateConfig(AppConfig config) {
         configRepository.findById(config.getId())
                 .ifPresent(configRepository::save);
+        bumpVersion();
         return config;
     }
 
@@ -48,8 +54,29 @@ public class ConfigServiceImpl implements IConfigService {
             initialConfig.setZelleEmail("info@royalgracecards.com");
             initialConfig.setCashappHandle("@royalgracecards");
             initialConfig.setZellePhone("1234567890");
-            return this.configRepository.save(initialConfig);
+            AppConfig saved = this.configRepository.save(initialConfig);
+            bumpVersion();
+            return saved;
         }
         return configuration.get(0);
     }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public long getConfigVersion() {
+        return version.get();
+    }
+
+    // bumped again after completion so a read that raced the commit cannot keep the new tag
+    private void bumpVersion() {
+        version.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    version.incrementAndGet();
+                }
+            });
+        }
+    }
 }
@@ -0,0 +1,397 @@
+package com.royalgrace.cards.service.impl;
+
+import com.nimbusds.jose.EncryptionMethod;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWEAlgorithm;
+import com.nimbusds.jose.JWEHeader;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.DirectDecrypter;
+import com.nimbusds.jose.crypto.DirectEncrypter;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jwt.EncryptedJWT;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.royalgrace.cards.cache.CardCatalogCache;
+import com.royalgrace.cards.dto.CartItemResponse;
+import com.royalgrace.cards.dto.CartOperation;
+import com.royalgrace.cards.dto.CartResponse;
+import com.royalgrace.cards.model.Card;
+import com.royalgrace.cards.model.Order;
+import com.royalgrace.cards.repository.CardRepository;
+import com.royalgrace.cards.repository.CartLineWriter;
+import com.royalgrace.cards.repository.CartRepository;
+import com.royalgrace.cards.repository.OrderRepository;
+import com.royalgrace.cards.service.ICartService;
+import com.royalgrace.cards.util.CartCookieUtil;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Cart service that keeps anonymous carts entirely in a signed (and optionally
+ * encrypted) cookie. Browsing and editing the cart never touch the database; the
+ * cart is written to {@code carts} / {@code cart_items} only when checkout begins.
+ * Enabled with {@code cart.store=cookie}.
+ * <p>
+ * The token carries card ids and quantities only. Names and prices always come
+ * from the catalog, so a tampered or stale cookie cannot change what is charged.
+ */
+@Service
+@ConditionalOnProperty(name = "cart.store", havingValue = "cookie")
+@Slf4j
+public class CookieCartServiceImpl implements ICartService {
+
+    private static final String LINES_CLAIM = "l";
+    // set once the cart has been written at checkout
+    private static final String PERSISTED_CLAIM = "p";
+    private static final Duration TOKEN_TTL = Duration.ofDays(7);
+    private static final int MIN_SECRET_BYTES = 32;
+
+    private final CartRepository cartRepository;
+    private final CardRepository cardRepository;
+    private final OrderRepository orderRepository;
+    private final CartLineWriter lineWriter;
+    private final CardCatalogCache catalogCache;
+    private final int maxLines;
+
+    private final MACSigner signer;
+    private final MACVerifier verifier;
+    private final DirectEncrypter encrypter;
+    private final DirectDecrypter decrypter;
+
+    public CookieCartServiceImpl(
+            CartRepository cartRepository,
+            CardRepository cardRepository,
+            OrderRepository orderRepository,
+            CartLineWriter lineWriter,
+            CardCatalogCache catalogCache,
+            @Value("${cart.cookie.secret}") String secret,
+            @Value("${cart.cookie.encrypt:false}") boolean encrypt,
+            @Value("${cart.cookie.max-lines:20}") int maxLines
+    ) {
+        this.cartRepository = cartRepository;
+        this.cardRepository = cardRepository;
+        this.orderRepository = orderRepository;
+        this.lineWriter = lineWriter;
+        this.catalogCache = catalogCache;
+        this.maxLines = maxLines;
+
+        byte[] key = secret.getBytes(StandardCharsets.UTF_8);
+        if (key.length < MIN_SECRET_BYTES) {
+            throw new IllegalStateException("cart.cookie.secret must be at least " + MIN_SECRET_BYTES + " bytes");
+        }
+        try {
+            this.signer = new MACSigner(key);
+            this.verifier = new MACVerifier(key);
+            byte[] encryptionKey = sha256(key);
+            this.encrypter = encrypt ? new DirectEncrypter(encryptionKey) : null;
+            this.decrypter = encrypt ? new DirectDecrypter(encryptionKey) : null;
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Invalid cart cookie key", e);
+        }
+    }
+
+    // =========================
+    // PUBLIC API
+    // =========================
+
+    @Override
+    public CartResponse getCart(
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) {
+        // no cookie means an empty cart; nothing is issued until the first edit
+        CookieCart cart = current(request, response);
+        return map(cart == null ? Map.of() : cart.lines());
+    }
+
+    @Override
+    public CartResponse addItem(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            String cardId
+    ) {
+        getCard(cardId);
+        return map(mutate(request, response, lines -> {
+            if (!lines.containsKey(cardId) && lines.size() >= maxLines) {
+                throw new IllegalArgumentException("Cart cannot hold more than " + maxLines + " different cards");
+            }
+            CartOperation.add(lines, cardId, 1);
+        }));
+    }
+
+    @Override
+    public CartResponse updateQuantity(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            String cardId,
+            int quantity
+    ) {
+        CartOperation.checkQuantity(quantity);
+        return map(mutate(request, response, lines -> {
+            if (!lines.containsKey(cardId)) {
+                throw new IllegalArgumentException("Item not found");
+            }
+            if (quantity <= 0) {
+                lines.remove(cardId);
+            } else {
+                lines.put(cardId, quantity);
+            }
+        }));
+    }
+
+    @Override
+    public CartResponse applyOperations(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            List<CartOperation> operations
+    ) {
+        CartOperation.validate(operations);
+        operations.stream()
+                .filter(CartOperation::addsCard)
+                .map(CartOperation::cardId)
+                .distinct()
+                .forEach(this::getCard);
+
+        return map(mutate(request, response, lines -> {
+            operations.forEach(operation -> operation.applyTo(lines));
+            if (lines.size() > maxLines) {
+                throw new IllegalArgumentException("Cart cannot hold more than " + maxLines + " different cards");
+            }
+        }));
+    }
+
+    @Override
+    @Transactional
+    public void clearCart(String sessionId) {
+        if (sessionId == null || sessionId.isBlank()) return;
+
+        // only a cart that reached checkout has a row
+        cartRepository.findBySessionId(sessionId)
+                .ifPresent(cart -> cartRepository.deleteById(cart.getId()));
+    }
+
+    @Override
+    @Transactional
+    public void clearCart(
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) {
+        clearCart(resolveSessionId(request));
+        CartCookieUtil.clearToken(response, isProduction());
+    }
+
+    @Override
+    @Transactional
+    public void flush(
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) {
+        CookieCart cart = current(request, response);
+        if (cart == null) {
+            return;
+        }
+        lineWriter.replace(cart.sessionId(), cart.lines());
+        write(response, new CookieCart(cart.sessionId(), cart.lines(), true));
+    }
+
+    @Override
+    public String resolveSessionId(HttpServletRequest request) {
+        CookieCart cart = read(request);
+        return cart == null ? null : cart.sessionId();
+    }
+
+    // =========================
+    // CART RESOLUTION
+    // =========================
+
+    private Map<String, Integer> mutate(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            Consumer<Map<String, Integer>> mutation
+    ) {
+        CookieCart cart = current(request, response);
+        if (cart == null) {
+            cart = new CookieCart(UUID.randomUUID().toString(), Map.of(), false);
+        }
+
+        Map<String, Integer> lines = new LinkedHashMap<>(cart.lines());
+        mutation.accept(lines);
+        write(response, new CookieCart(cart.sessionId(), lines, cart.persisted()));
+        return lines;
+    }
+
+    /**
+     * The shopper's cart, or null if there is none. A cart whose checkout has
+     * been paid for is dropped, as the JPA store does when the payment webhook
+     * clears it.
+     */
+    private CookieCart current(HttpServletRequest request, HttpServletResponse response) {
+        CookieCart cart = read(request);
+        if (cart != null && cart.persisted()
+                && orderRepository.existsByCartSessionIdAndPaymentStatus(cart.sessionId(), Order.PaymentStatus.COMPLETED)) {
+            CartCookieUtil.clearToken(response, isProduction());
+            return null;
+        }
+        return cart;
+    }
+
+    private CookieCart read(HttpServletRequest request) {
+        if (request.getCookies() == null) return null;
+
+        return Arrays.stream(request.getCookies())
+                .filter(c -> CartCookieUtil.CART_TOKEN.equals(c.getName()))
+                .map(Cookie::getValue)
+                .filter(value -> !value.isBlank())
+                .findFirst()
+                .map(this::decode)
+                .orElse(null);
+    }
+
+    private void write(HttpServletResponse response, CookieCart cart) {
+        CartCookieUtil.setToken(response, encode(cart), isProduction());
+    }
+
+    // =========================
+    // TOKEN
+    // =========================
+
+    private String encode(CookieCart cart) {
+        // "cardId:quantity" keeps the token well under the 4 KB cookie limit at max-lines
+        List<String> lines = new ArrayList<>(cart.lines().size());
+        cart.lines().forEach((cardId, quantity) -> lines.add(cardId + ":" + quantity));
+
+        JWTClaimsSet.Builder claims = new JWTClaimsSet.Builder()
+                .subject(cart.sessionId())
+                .claim(LINES_CLAIM, lines)
+                .expirationTime(Date.from(Instant.now().plus(TOKEN_TTL)));
+        if (cart.persisted()) {
+            claims.claim(PERSISTED_CLAIM, true);
+        }
+
+        try {
+            if (encrypter != null) {
+                // AES-GCM is authenticated, so the encrypted form needs no separate signature
+                EncryptedJWT jwt = new EncryptedJWT(new JWEHeader(JWEAlgorithm.DIR, EncryptionMethod.A256GCM), claims.build());
+                jwt.encrypt(encrypter);
+                return jwt.serialize();
+            }
+            SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), claims.build());
+            jwt.sign(signer);
+            return jwt.serialize();
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Could not encode cart cookie", e);
+        }
+    }
+
+    private CookieCart decode(String token) {
+        try {
+            JWTClaimsSet claims;
+            if (decrypter != null) {
+                EncryptedJWT jwt = EncryptedJWT.parse(token);
+                jwt.decrypt(decrypter);
+                claims = jwt.getJWTClaimsSet();
+            } else {
+                SignedJWT jwt = SignedJWT.parse(token);
+                if (!jwt.verify(verifier)) {
+                    return null;
+                }
+                claims = jwt.getJWTClaimsSet();
+            }
+
+            if (claims.getSubject() == null || claims.getExpirationTime() == null
+                    || claims.getExpirationTime().before(new Date())) {
+                return null;
+            }
+
+            Map<String, Integer> lines = new LinkedHashMap<>();
+            List<String> encoded = claims.getStringListClaim(LINES_CLAIM);
+            if (encoded != null) {
+                for (String line : encoded) {
+                    int colon = line.lastIndexOf(':');
+                    int quantity = Integer.parseInt(line.substring(colon + 1));
+                    if (colon > 0 && quantity > 0 && lines.size() < maxLines) {
+                        lines.put(line.substring(0, colon), quantity);
+                    }
+                }
+            }
+            return new CookieCart(claims.getSubject(), lines, Boolean.TRUE.equals(claims.getBooleanClaim(PERSISTED_CLAIM)));
+        } catch (ParseException | JOSEException | RuntimeException e) {
+            // a forged, corrupted or old-format cookie is treated as no cart
+            log.debug("Ignoring invalid cart cookie: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // =========================
+    // HELPERS
+    // =========================
+
+    private Card getCard(String cardId) {
+        return catalogCache.get(cardId, cardRepository::findById)
+                .orElseThrow(() -> new IllegalArgumentException("Card not found"));
+    }
+
+    private boolean isProduction() {
+        return !"local".equalsIgnoreCase(System.getenv("SPRING_PROFILES_ACTIVE"));
+    }
+
+    private CartResponse map(Map<String, Integer> lines) {
+
+        if (lines.isEmpty()) {
+            return new CartResponse(List.of(), 0, 0);
+        }
+
+        // priced from the catalog cache, never from the cookie
+        List<CartItemResponse> items = new ArrayList<>(lines.size());
+        lines.forEach((cardId, quantity) -> catalogCache.get(cardId, cardRepository::findById)
+                .ifPresent(card -> items.add(new CartItemResponse(
+                        card.getId(),
+                        card.getName(),
+                        card.getPrice(),
+                        quantity
+                ))));
+
+        int totalItems = items.stream()
+                .mapToInt(CartItemResponse::quantity)
+                .sum();
+
+        double subtotal = items.stream()
+                .mapToDouble(i -> i.price() * i.quantity())
+                .sum();
+
+        return new CartResponse(items, totalItems, subtotal);
+    }
+
+    private static byte[] sha256(byte[] input) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(input);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record CookieCart(String sessionId, Map<String, Integer> lines, boolean persisted) {}
+}
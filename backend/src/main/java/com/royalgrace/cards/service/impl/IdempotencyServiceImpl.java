@@ -0,0 +1,245 @@
+package com.royalgrace.cards.service.impl;
+
+import com.royalgrace.cards.model.IdempotencyKey;
+import com.royalgrace.cards.service.IIdempotencyService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Idempotency keys are claimed in {@code idempotency_keys}, which makes them safe
+ * across instances. On top of that, completed responses are kept in a bounded
+ * local cache, and duplicates on the same instance wait on the running request
+ * instead of polling the table. Claims are written outside the caller's
+ * transaction, so the action's own transaction has committed before its response
+ * is recorded.
+ */
+@Service
+@Slf4j
+public class IdempotencyServiceImpl implements IIdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final long POLL_INTERVAL_MS = 200;
+
+    // takes over keys whose in-progress lease or stored response has expired
+    private static final String CLAIM = """
+            INSERT INTO idempotency_keys (id, fingerprint, status, lease_token, created_at)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT (id) DO UPDATE
+                SET fingerprint = EXCLUDED.fingerprint, status = EXCLUDED.status,
+                    lease_token = EXCLUDED.lease_token, response = NULL, created_at = EXCLUDED.created_at, completed_at = NULL
+                WHERE (idempotency_keys.status = ? AND idempotency_keys.created_at < ?)
+                   OR idempotency_keys.created_at < ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JsonMapper jsonMapper;
+    private final long ttlMs;
+    private final long leaseMs;
+    private final long waitTimeoutMs;
+
+    private final Map<String, CompletableFuture<Stored>> inFlight = new ConcurrentHashMap<>();
+    // access ordered, guarded by itself
+    private final Map<String, Stored> completed;
+
+    public IdempotencyServiceImpl(
+            JdbcTemplate jdbcTemplate,
+            JsonMapper jsonMapper,
+            @Value("${idempotency.ttl-hours:24}") long ttlHours,
+            @Value("${idempotency.lease-ms:60000}") long leaseMs,
+            @Value("${idempotency.wait-timeout-ms:30000}") long waitTimeoutMs,
+            @Value("${idempotency.cache-size:10000}") int cacheSize
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.jsonMapper = jsonMapper;
+        this.ttlMs = TimeUnit.HOURS.toMillis(ttlHours);
+        this.leaseMs = leaseMs;
+        this.waitTimeoutMs = waitTimeoutMs;
+        this.completed = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Stored> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    @Override
+    public <T> T execute(String scope, String key, Object request, Class<T> responseType, Callable<T> action) throws Exception {
+        if (key == null) {
+            return action.call();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String id = scope + ":" + key;
+        String fingerprint = fingerprint(request);
+
+        Stored cached = cached(id);
+        if (cached != null) {
+            return replay(cached, fingerprint, responseType);
+        }
+
+        CompletableFuture<Stored> own = new CompletableFuture<>();
+        CompletableFuture<Stored> running = inFlight.putIfAbsent(id, own);
+        if (running != null) {
+            return replay(await(running), fingerprint, responseType);
+        }
+
+        String leaseToken = UUID.randomUUID().toString();
+        try {
+            if (!claim(id, fingerprint, leaseToken)) {
+                // claimed by another instance, or completed before this instance cached it
+                Stored stored = awaitRemote(id, fingerprint, leaseToken);
+                if (stored != null) {
+                    own.complete(stored);
+                    return replay(stored, fingerprint, responseType);
+                }
+                // the other claim was abandoned and this request now holds it
+            }
+
+            T result;
+            try {
+                result = action.call();
+            } catch (Exception | Error e) {
+                // nothing was recorded, so the client may retry with the same key; a claim
+                // taken over after this lease ran out belongs to another request and stays
+                jdbcTemplate.update("DELETE FROM idempotency_keys WHERE id = ? AND lease_token = ?", id, leaseToken);
+                throw e;
+            }
+
+            Stored stored = new Stored(fingerprint, jsonMapper.writeValueAsString(result), System.currentTimeMillis());
+            int recorded = jdbcTemplate.update(
+                    "UPDATE idempotency_keys SET status = ?, response = ?, completed_at = ? WHERE id = ? AND lease_token = ?",
+                    IdempotencyKey.Status.COMPLETED.name(),
+                    stored.body(),
+                    Timestamp.valueOf(LocalDateTime.now()),
+                    id,
+                    leaseToken
+            );
+            if (recorded == 0) {
+                log.warn("Idempotency key {} outlived its lease and was taken over; its response was not stored", id);
+            }
+            synchronized (completed) {
+                completed.put(id, stored);
+            }
+            own.complete(stored);
+            return result;
+        } catch (Exception | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(id, own);
+        }
+    }
+
+    private boolean claim(String id, String fingerprint, String leaseToken) {
+        LocalDateTime now = LocalDateTime.now();
+        return jdbcTemplate.update(
+                CLAIM,
+                id,
+                fingerprint,
+                IdempotencyKey.Status.IN_PROGRESS.name(),
+                leaseToken,
+                Timestamp.valueOf(now),
+                IdempotencyKey.Status.IN_PROGRESS.name(),
+                Timestamp.valueOf(now.minusNanos(TimeUnit.MILLISECONDS.toNanos(leaseMs))),
+                Timestamp.valueOf(now.minusNanos(TimeUnit.MILLISECONDS.toNanos(ttlMs)))
+        ) > 0;
+    }
+
+    /**
+     * Waits for another claim on the key to complete. Returns null once this request has taken the claim over,
+     * because the original failed or its lease ran out.
+     */
+    private Stored awaitRemote(String id, String fingerprint, String leaseToken) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + waitTimeoutMs;
+        while (System.currentTimeMillis() < deadline) {
+            List<Stored> rows = jdbcTemplate.query(
+                    "SELECT fingerprint, status, response, completed_at FROM idempotency_keys WHERE id = ?",
+                    (rs, rowNum) -> IdempotencyKey.Status.COMPLETED.name().equals(rs.getString("status"))
+                            ? new Stored(rs.getString("fingerprint"), rs.getString("response"),
+                                    rs.getTimestamp("completed_at").getTime())
+                            : null,
+                    id
+            );
+            if (!rows.isEmpty() && rows.getFirst() != null) {
+                synchronized (completed) {
+                    completed.put(id, rows.getFirst());
+                }
+                return rows.getFirst();
+            }
+            if (claim(id, fingerprint, leaseToken)) {
+                return null;
+            }
+            Thread.sleep(POLL_INTERVAL_MS);
+        }
+        throw new ResponseStatusException(HttpStatus.CONFLICT, "A request with this " + HEADER + " is still in progress");
+    }
+
+    private Stored await(CompletableFuture<Stored> running) throws Exception {
+        try {
+            return running.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A request with this " + HEADER + " is still in progress");
+        } catch (ExecutionException e) {
+            // duplicates see the same outcome as the request they waited on
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private Stored cached(String id) {
+        synchronized (completed) {
+            Stored stored = completed.get(id);
+            if (stored != null && System.currentTimeMillis() - stored.storedAt() > ttlMs) {
+                completed.remove(id);
+                return null;
+            }
+            return stored;
+        }
+    }
+
+    private <T> T replay(Stored stored, String fingerprint, Class<T> responseType) {
+        if (!stored.fingerprint().equals(fingerprint)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_CONTENT,
+                    HEADER + " was already used for a different request");
+        }
+        return jsonMapper.readValue(stored.body(), responseType);
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(jsonMapper.writeValueAsString(request).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Stored(String fingerprint, String body, long storedAt) {}
+}
@@ -0,0 +1,245 @@
+package com.royalgrace.cards.service.impl;
+
+import com.royalgrace.cards.service.IImageService;
+import com.royalgrace.cards.service.IUploadStorage;
+import com.royalgrace.cards.util.ImageUrlUtil;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+@Slf4j
+public class ImageServiceImpl implements IImageService {
+
+    private static final Set<String> EXTENSIONS = Set.of("jpg", "jpeg", "png", "gif", "webp", "bmp", "svg");
+    private static final Map<String, String> CONTENT_TYPES = Map.of(
+            "jpg", "image/jpeg",
+            "jpeg", "image/jpeg",
+            "png", "image/png",
+            "gif", "image/gif",
+            "webp", "image/webp",
+            "bmp", "image/bmp",
+            "svg", "image/svg+xml"
+    );
+    private static final float JPEG_QUALITY = 0.82f;
+
+    private final IUploadStorage storage;
+    private final ThreadPoolExecutor executor;
+
+    public ImageServiceImpl(
+            IUploadStorage storage,
+            @Value("${upload.image.workers:2}") int workers,
+            @Value("${upload.image.queue-capacity:200}") int queueCapacity
+    ) {
+        this.storage = storage;
+        AtomicInteger threads = new AtomicInteger();
+        // bounded on both threads and queue; when full the upload waits for room rather than decode
+        // in the request, so decoding never runs on more than the worker threads
+        this.executor = new ThreadPoolExecutor(
+                workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> new Thread(r, "image-" + threads.incrementAndGet()),
+                (task, pool) -> {
+                    if (pool.isShutdown()) {
+                        throw new RejectedExecutionException("Image workers are shut down");
+                    }
+                    try {
+                        pool.getQueue().put(task);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException("Interrupted while waiting for an image worker", e);
+                    }
+                }
+        );
+    }
+
+    @Override
+    public String store(MultipartFile file) throws IOException {
+        // the multipart part is already spooled by the container, so it is read twice
+        // (hash, then upload) rather than copied into another temp file
+        MessageDigest digest = sha256();
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+
+        String extension = extension(file.getOriginalFilename());
+        String storedName = HexFormat.of().formatHex(digest.digest()) + "." + extension;
+
+        if (storage.exists(storedName)) {
+            // same bytes already stored; rebuild the variants if an earlier run failed or never ran
+            if (ImageUrlUtil.hasVariants(storedName) && !variantsExist(storedName)) {
+                queueVariants(storedName);
+            }
+            return storedName;
+        }
+        try (InputStream in = file.getInputStream()) {
+            storage.put(storedName, in, file.getSize(), CONTENT_TYPES.getOrDefault(extension, "application/octet-stream"));
+        }
+        queueVariants(storedName);
+        return storedName;
+    }
+
+    @Override
+    public List<String> storeAll(List<MultipartFile> files) throws IOException {
+        // uploads are I/O bound, so each file gets its own virtual thread
+        try (ExecutorService uploads = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<String>> pending = new ArrayList<>(files.size());
+            for (MultipartFile file : files) {
+                pending.add(uploads.submit(() -> store(file)));
+            }
+
+            List<String> names = new ArrayList<>(files.size());
+            for (Future<String> future : pending) {
+                names.add(await(future));
+            }
+            return names;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    private boolean variantsExist(String storedName) throws IOException {
+        for (ImageVariant variant : ImageVariant.values()) {
+            if (!storage.exists(ImageUrlUtil.variantName(storedName, variant))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void queueVariants(String storedName) {
+        try {
+            executor.execute(() -> generateVariants(storedName));
+        } catch (RejectedExecutionException e) {
+            // the original is stored; the next upload of the same bytes queues the variants again
+            log.warn("Variants for {} not queued: {}", storedName, e.getMessage());
+        }
+    }
+
+    private void generateVariants(String storedName) {
+        try {
+            BufferedImage source;
+            try (InputStream in = storage.open(storedName)) {
+                source = ImageIO.read(in);
+            }
+            if (source == null) {
+                // not a raster format ImageIO can decode (e.g. svg); the original is served as-is
+                log.info("No variants generated for {}: unsupported image format", storedName);
+                return;
+            }
+            for (ImageVariant variant : ImageVariant.values()) {
+                byte[] jpeg = encodeVariant(source, variant);
+                storage.put(ImageUrlUtil.variantName(storedName, variant),
+                        new ByteArrayInputStream(jpeg), jpeg.length, "image/jpeg");
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to generate variants for {}: {}", storedName, e.getMessage(), e);
+        }
+    }
+
+    private byte[] encodeVariant(BufferedImage source, ImageVariant variant) throws IOException {
+        int width = Math.min(variant.maxWidth(), source.getWidth());
+        int height = Math.max(1, Math.round((float) source.getHeight() * width / source.getWidth()));
+
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scaled.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(JPEG_QUALITY);
+        param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+
+        // variants are small enough to encode in memory, which also gives the storage a known length
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(bytes)) {
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(scaled, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String await(Future<String> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Upload interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static String extension(String filename) {
+        if (filename == null) {
+            return "bin";
+        }
+        int dot = filename.lastIndexOf('.');
+        String extension = dot >= 0 ? filename.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+        return EXTENSIONS.contains(extension) ? extension : "bin";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
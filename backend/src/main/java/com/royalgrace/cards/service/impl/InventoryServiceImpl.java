@@ -0,0 +1,286 @@
+package com.royalgrace.cards.service.impl;
+
+import com.royalgrace.cards.cache.CardCatalogCache;
+import com.royalgrace.cards.cache.CategoryFacetCounter;
+import com.royalgrace.cards.cache.InventoryLedger;
+import com.royalgrace.cards.model.Card;
+import com.royalgrace.cards.repository.CardRepository;
+import com.royalgrace.cards.service.IInventoryService;
+import com.royalgrace.cards.service.IPricingService;
+import com.royalgrace.cards.util.TransactionUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.id.uuid.UuidVersion7Strategy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Card rows are always updated in card id order, by reservations, payments and
+ * releases alike, so concurrent orders queue on the same rows instead of
+ * deadlocking. With {@link InventoryLedger} enabled, reservations are first
+ * admitted in memory, and only admitted ones reach the database.
+ */
+@Service
+@Transactional
+@Slf4j
+public class InventoryServiceImpl implements IInventoryService {
+
+    // computed from the old row: in_stock stays true while any stock is left, and
+    // sold_out records that this update, not an admin, took the card off sale
+    private static final String TAKE = """
+            UPDATE cards SET inventory = inventory - ?, in_stock = in_stock AND inventory > ?,
+                sold_out = sold_out OR (in_stock AND inventory = ?)
+            WHERE id = ? AND inventory >= ?
+            """;
+
+    // a card that sold out through orders is back on sale; one an admin took off sale stays off
+    private static final String PUT_BACK = """
+            UPDATE cards SET inventory = inventory + ?, in_stock = in_stock OR sold_out, sold_out = false
+            WHERE id = ?
+            """;
+
+    private static final String INSERT_RESERVATION = """
+            INSERT INTO inventory_reservations (id, order_id, card_id, quantity, expires_at, created_at)
+            VALUES (?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String DELETE_EXPIRED = """
+            DELETE FROM inventory_reservations
+            WHERE id IN (
+                SELECT id FROM inventory_reservations
+                WHERE expires_at < ?
+                ORDER BY expires_at
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            )
+            RETURNING card_id, quantity
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CardRepository cardRepository;
+    private final CardCatalogCache catalogCache;
+    private final CategoryFacetCounter facetCounter;
+    private final InventoryLedger ledger;
+    private final long reservationTtlMinutes;
+
+    private final Counter reserved;
+    private final Counter committed;
+    private final Counter released;
+    private final Counter expired;
+    private final Counter oversold;
+
+    public InventoryServiceImpl(
+            JdbcTemplate jdbcTemplate,
+            CardRepository cardRepository,
+            CardCatalogCache catalogCache,
+            CategoryFacetCounter facetCounter,
+            Optional<InventoryLedger> ledger,
+            MeterRegistry meterRegistry,
+            @Value("${inventory.reservation-ttl-minutes:60}") long reservationTtlMinutes
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cardRepository = cardRepository;
+        this.catalogCache = catalogCache;
+        this.facetCounter = facetCounter;
+        this.ledger = ledger.orElse(null);
+        this.reservationTtlMinutes = reservationTtlMinutes;
+
+        this.reserved = Counter.builder("inventory.reservations").tag("outcome", "reserved").register(meterRegistry);
+        this.committed = Counter.builder("inventory.reservations").tag("outcome", "committed").register(meterRegistry);
+        this.released = Counter.builder("inventory.reservations").tag("outcome", "released").register(meterRegistry);
+        this.expired = Counter.builder("inventory.reservations").tag("outcome", "expired").register(meterRegistry);
+        this.oversold = Counter.builder("inventory.oversold")
+                .description("Units sold after their reservation expired and the stock was gone")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public LocalDateTime reserve(String orderId, List<IPricingService.Line> lines) {
+        SortedMap<String, Integer> quantities = merge(lines);
+
+        if (ledger != null) {
+            // sold-out cards are turned away here, without touching a row
+            List<String> rejected = ledger.tryTake(quantities);
+            if (!rejected.isEmpty()) {
+                throw new IllegalStateException("Insufficient inventory for " + String.join(", ", names(rejected)));
+            }
+            TransactionUtil.afterRollback(() -> quantities.forEach(ledger::putBack));
+        }
+
+        List<String> shortages = take(quantities);
+        if (!shortages.isEmpty()) {
+            // the rows already taken are restored by the rollback
+            throw new IllegalStateException("Insufficient inventory for " + String.join(", ", names(shortages)));
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plusMinutes(reservationTtlMinutes);
+        List<Object[]> rows = new ArrayList<>(quantities.size());
+        quantities.forEach((cardId, quantity) -> rows.add(new Object[]{
+                newId(), orderId, cardId, quantity, Timestamp.valueOf(expiresAt), Timestamp.valueOf(now)
+        }));
+        jdbcTemplate.batchUpdate(INSERT_RESERVATION, rows);
+
+        reserved.increment();
+        refresh(quantities.keySet());
+        return expiresAt;
+    }
+
+    @Override
+    public void commit(String orderId, List<IPricingService.Line> lines) {
+        // the reservation is gone after the first commit, so a second one would take every line again
+        int first = jdbcTemplate.update(
+                "INSERT INTO inventory_commits (order_id, committed_at) VALUES (?, ?) ON CONFLICT DO NOTHING",
+                orderId,
+                Timestamp.valueOf(LocalDateTime.now())
+        );
+        if (first == 0) {
+            return;
+        }
+
+        List<String> held = jdbcTemplate.queryForList(
+                "DELETE FROM inventory_reservations WHERE order_id = ? RETURNING card_id",
+                String.class,
+                orderId
+        );
+
+        SortedMap<String, Integer> missing = merge(lines);
+        missing.keySet().removeAll(held);
+        if (missing.isEmpty()) {
+            committed.increment();
+            return;
+        }
+
+        // paid after (part of) the reservation expired: take the stock again if it is still there
+        List<String> shortages = take(missing);
+        if (!shortages.isEmpty()) {
+            oversold.increment(shortages.size());
+            log.warn("Order {} was paid after its reservation expired; oversold cards {}", orderId, shortages);
+        }
+        committed.increment();
+        refresh(missing.keySet());
+    }
+
+    @Override
+    public void release(String orderId) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "DELETE FROM inventory_reservations WHERE order_id = ? RETURNING card_id, quantity",
+                orderId
+        );
+        if (!rows.isEmpty()) {
+            putBack(rows);
+            released.increment();
+        }
+    }
+
+    @Override
+    public int releaseExpired(int limit) {
+        // locked rows belong to orders being paid right now; they are left to the payment
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                DELETE_EXPIRED,
+                Timestamp.valueOf(LocalDateTime.now()),
+                limit
+        );
+        if (!rows.isEmpty()) {
+            putBack(rows);
+            expired.increment(rows.size());
+        }
+        return rows.size();
+    }
+
+    /**
+     * Takes every quantity off its card in one batch. Returns the cards without
+     * enough inventory, which were left untouched.
+     */
+    private List<String> take(SortedMap<String, Integer> quantities) {
+        List<Object[]> rows = new ArrayList<>(quantities.size());
+        quantities.forEach((cardId, quantity) -> rows.add(new Object[]{quantity, quantity, quantity, cardId, quantity}));
+        int[] updated = jdbcTemplate.batchUpdate(TAKE, rows);
+
+        List<String> shortages = new ArrayList<>();
+        int i = 0;
+        for (String cardId : quantities.keySet()) {
+            if (updated[i++] == 0) {
+                shortages.add(cardId);
+            }
+        }
+        return shortages;
+    }
+
+    private void putBack(List<Map<String, Object>> reservations) {
+        SortedMap<String, Integer> quantities = new TreeMap<>();
+        for (Map<String, Object> row : reservations) {
+            quantities.merge((String) row.get("card_id"), ((Number) row.get("quantity")).intValue(), Integer::sum);
+        }
+
+        List<Object[]> rows = new ArrayList<>(quantities.size());
+        quantities.forEach((cardId, quantity) -> rows.add(new Object[]{quantity, cardId}));
+        jdbcTemplate.batchUpdate(PUT_BACK, rows);
+        refresh(quantities.keySet());
+    }
+
+    /**
+     * Keeps the catalog cache and the in-stock facet counts in step with the rows
+     * changed behind the persistence context.
+     */
+    private void refresh(Collection<String> cardIds) {
+        if (cardIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.query(
+                "SELECT id, category, in_stock, inventory FROM cards WHERE id IN (" + placeholders(cardIds.size()) + ")",
+                rs -> {
+                    String id = rs.getString("id");
+                    catalogCache.evict(id);
+                    facetCounter.update(id, rs.getString("category"), rs.getBoolean("in_stock"));
+                    if (ledger != null) {
+                        int inventory = rs.getInt("inventory");
+                        TransactionUtil.afterCommit(() -> ledger.set(id, inventory));
+                    }
+                },
+                cardIds.toArray()
+        );
+    }
+
+    // from the catalog cache, so rejections during a drop cost no queries
+    private List<String> names(List<String> cardIds) {
+        List<String> names = new ArrayList<>(cardIds.size());
+        for (String cardId : cardIds) {
+            names.add(catalogCache.get(cardId, cardRepository::findById).map(Card::getName).orElse(cardId));
+        }
+        return names;
+    }
+
+    // quantities per card, in card id order; lines for the same card are added up
+    private static SortedMap<String, Integer> merge(List<IPricingService.Line> lines) {
+        SortedMap<String, Integer> quantities = new TreeMap<>();
+        for (IPricingService.Line line : lines) {
+            if (line.quantity() > 0) {
+                quantities.merge(line.cardId(), line.quantity(), Integer::sum);
+            }
+        }
+        return quantities;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+
+    private static String newId() {
+        return UuidVersion7Strategy.INSTANCE.generateUuid(null).toString();
+    }
+}
@@ -0,0 +1,78 @@
+package com.royalgrace.cards.service.impl;
+
+import com.royalgrace.cards.service.IUploadStorage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+
+@Service
+@ConditionalOnProperty(name = "upload.storage", havingValue = "local", matchIfMissing = true)
+public class LocalUploadStorage implements IUploadStorage {
+
+    private final Path root;
+    private final String baseUrl;
+
+    public LocalUploadStorage(
+            @Value("${upload.path:uploads}") String uploadPath,
+            @Value("${app.base-url:http://localhost:${server.port:9091}}") String baseUrl
+    ) {
+        this.root = Paths.get(uploadPath).toAbsolutePath().normalize();
+        this.baseUrl = baseUrl;
+    }
+
+    @Override
+    public boolean exists(String name) {
+        return Files.exists(resolve(name));
+    }
+
+    @Override
+    public void put(String name, InputStream content, long length, String contentType) throws IOException {
+        Files.createDirectories(root);
+
+        // written once next to the target and renamed, so readers never see a partial file
+        Path temp = Files.createTempFile(root, "upload", ".tmp");
+        try {
+            Files.copy(content, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, resolve(name), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public InputStream open(String name) throws IOException {
+        return Files.newInputStream(resolve(name));
+    }
+
+    @Override
+    public String publicUrl(String name) {
+        return baseUrl + "/uploads/" + name;
+    }
+
+    @Override
+    public Optional<Path> localPath(String name) {
+        Path file = resolve(name);
+        return Files.isRegularFile(file) ? Optional.of(file) : Optional.empty();
+    }
+
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+
+    private Path resolve(String name) {
+        Path file = root.resolve(name).normalize();
+        if (!file.startsWith(root)) {
+            throw new IllegalArgumentException("Invalid upload name: " + name);
+        }
+        return file;
+    }
+}
@@ -1,22 +1,21 @@
 package com.royalgrace.cards.service.impl;
 
 import com.royalgrace.cards.dto.UpdateOrderStatusRequest;
-import com.royalgrace.cards.model.AppConfig;
-import com.royalgrace.cards.model.Card;
 import com.royalgrace.cards.model.Order;
 import com.royalgrace.cards.model.OrderItem;
 import com.royalgrace.cards.model.TrackingUpdate;
-import com.royalgrace.cards.repository.CardRepository;
 import com.royalgrace.cards.repository.OrderRepository;
-import com.royalgrace.cards.service.IConfigService;
+import com.royalgrace.cards.service.IInventoryService;
 import com.royalgrace.cards.service.IOrderService;
+import com.royalgrace.cards.service.IPricingService;
+import com.royalgrace.cards.util.MoneyUtil;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
 import java.util.Optional;
 
 @Service
@@ -24,14 +23,15 @@ import java.util.Optional;
 public class OrderServiceImpl implements IOrderService {
 
     private final OrderRepository orderRepository;
-    private final CardRepository cardRepository;
-    private final IConfigService configService;
+    private final IPricingService pricingService;
+    private final IInventoryService inventoryService;
 
     @Autowired
-    public OrderServiceImpl(OrderRepository orderRepository, CardRepository cardRepository, IConfigService configService) {
+    public OrderServiceImpl(OrderRepository orderRepository, IPricingService pricingService,
+                            IInventoryService inventoryService) {
         this.orderRepository = orderRepository;
-        this.cardRepository = cardRepository;
-        this.configService = configService;
+        this.pricingService = pricingService;
+        this.inventoryService = inventoryService;
     }
 
     @Override
@@ -89,77 +89,45 @@ public class OrderServiceImpl implements IOrderService {
             throw new IllegalArgumentException("Payment method is required");
         }
 
-        double subtotal = 0.0;
-
-        // 🔒 Validate & enrich items
+        List<IPricingService.Line> lines = new ArrayList<>(order.getItems().size());
         for (OrderItem item : order.getItems()) {
-
             if (item.getCard() == null || item.getCard().getId() == null) {
                 throw new IllegalArgumentException("Order item must reference a card");
             }
+            lines.add(new IPricingService.Line(
+                    item.getCard().getId(),
+                    item.getQuantity() != null ? item.getQuantity() : 0
+            ));
+        }
 
-            var card = cardRepository.findById(item.getCard().getId())
-                    .orElseThrow(() ->
-                            new IllegalArgumentException("Card not found: " + item.getCard().getId())
-                    );
+        // 🔒 Validate & price all items against one catalog read
+        IPricingService.Quote quote = pricingService.quote(lines);
 
-            int quantity = getQuantity(item, card);
+        for (int i = 0; i < quote.lines().size(); i++) {
+            IPricingService.PricedLine line = quote.lines().get(i);
+            OrderItem item = order.getItems().get(i);
 
             // 🔑 Lock values
             item.setOrder(order);
-            item.setCard(card);
-            item.setPriceAtPurchase(card.getPrice());
-
-            subtotal += card.getPrice() * quantity;
+            item.setCard(line.card());
+            item.setPriceAtPurchase(MoneyUtil.fromCents(line.unitCents()));
         }
 
-        // 🔑 Enforce required monetary fields
-        order.setSubtotal(subtotal);
-
-        // 🚚 Shipping logic from config
-        double shippingFee = calculateShippingFee(order.getItems());
-        order.setShippingFee(shippingFee);
-
-        order.setTotal(subtotal + shippingFee);
+        // 🔑 Enforce required monetary fields, shipping included
+        order.setSubtotal(MoneyUtil.fromCents(quote.subtotalCents()));
+        order.setShippingFee(MoneyUtil.fromCents(quote.shippingCents()));
+        order.setTotal(MoneyUtil.fromCents(quote.totalCents()));
 
         // 🔑 Force correct states (ignore UI tampering)
         order.setPaymentStatus(Order.PaymentStatus.PENDING);
         order.setFulfillmentStatus(Order.FulfillmentStatus.PENDING);
 
-        return orderRepository.save(order);
-    }
-
-    private double calculateShippingFee(List<OrderItem> items) throws Exception {
-        AppConfig config = configService.getConfig();
-        if(Objects.isNull(config)) {
-            throw new Exception("App config is null");
-        }
+        Order saved = orderRepository.save(order);
 
-        double sum = items.stream()
-                .mapToDouble(item -> item.getPriceAtPurchase() * item.getQuantity())
-                .sum();
-        if(sum >= config.getFreeShippingThreshold()){
-            return 0.0;
-        }
+        // 🔒 Hold the stock until the order is paid or the reservation expires
+        inventoryService.reserve(saved.getId(), lines);
 
-        return config.getStandardShippingFee();
-    }
-
-    private static int getQuantity(OrderItem item, Card card) {
-        int quantity = item.getQuantity() != null ? item.getQuantity() : 0;
-
-        if (quantity <= 0) {
-            throw new IllegalArgumentException("Invalid quantity for " + card.getName());
-        }
-
-        int availableInventory = card.getInventory() != null ? card.getInventory() : 0;
-
-        if (availableInventory < quantity) {
-            throw new IllegalStateException(
-                    "Insufficient inventory for " + card.getName()
-            );
-        }
-        return quantity;
+        return saved;
     }
 
     @Override
@@ -181,7 +149,17 @@ public class OrderServiceImpl implements IOrderService {
                 .orElseThrow(() -> new EntityNotFoundException("Order not found"));
 
         if (request.paymentStatus() != null) {
+            Order.PaymentStatus previous = order.getPaymentStatus();
             order.setPaymentStatus(request.paymentStatus());
+
+            // commit only ever applies once per order, even if the status goes back and forth
+            if (request.paymentStatus() != previous) {
+                if (request.paymentStatus() == Order.PaymentStatus.COMPLETED) {
+                    inventoryService.commit(orderId, lines(order));
+                } else if (request.paymentStatus() == Order.PaymentStatus.FAILED) {
+                    inventoryService.release(orderId);
+                }
+            }
         }
 
         if (request.fulfillmentStatus() != null) {
@@ -220,21 +198,20 @@ public class OrderServiceImpl implements IOrderService {
 
     @Override
     public void decrementInventory(String orderId) {
-        Order order = orderRepository.findById(orderId).orElse(null);
-        if (order != null) {
-            for (OrderItem item : order.getItems()) {
-                if (item.getCard() != null) {
-                    com.royalgrace.cards.model.Card card = item.getCard();
-                    int currentInventory = card.getInventory() != null ? card.getInventory() : 0;
-                    int quantityToDecrement = item.getQuantity() != null ? item.getQuantity() : 0;
-                    card.setInventory(Math.max(0, currentInventory - quantityToDecrement));
-                    if (card.getInventory() == 0) {
-                        card.setInStock(false);
-                    }
-                    cardRepository.save(card);
-                }
+        orderRepository.findById(orderId).ifPresent(order -> inventoryService.commit(orderId, lines(order)));
+    }
+
+    private static List<IPricingService.Line> lines(Order order) {
+        List<IPricingService.Line> lines = new ArrayList<>(order.getItems().size());
+        for (OrderItem item : order.getItems()) {
+            if (item.getCard() != null) {
+                lines.add(new IPricingService.Line(
+                        item.getCard().getId(),
+                        item.getQuantity() != null ? item.getQuantity() : 0
+                ));
             }
         }
+        return lines;
     }
 
     @Override
@@ -5,54 +5,81 @@ import com.royalgrace.cards.dto.CheckoutRequest;
 import com.royalgrace.cards.dto.CheckoutResponse;
 import com.royalgrace.cards.dto.QRCodeRequest;
 import com.royalgrace.cards.dto.QRCodeResponse;
-import com.royalgrace.cards.model.AppConfig;
+import com.royalgrace.cards.gateway.StripeGateway;
 import com.royalgrace.cards.model.Card;
 import com.royalgrace.cards.model.Order;
 import com.royalgrace.cards.model.OrderItem;
 import com.royalgrace.cards.model.ShippingAddress;
-import com.royalgrace.cards.repository.CardRepository;
 import com.royalgrace.cards.repository.OrderRepository;
 import com.royalgrace.cards.service.ICartService;
-import com.royalgrace.cards.service.IConfigService;
+import com.royalgrace.cards.service.IIdempotencyService;
+import com.royalgrace.cards.service.IInventoryService;
 import com.royalgrace.cards.service.IPaymentService;
-import com.stripe.Stripe;
+import com.royalgrace.cards.service.IPricingService;
+import com.royalgrace.cards.util.MoneyUtil;
 import com.stripe.model.checkout.Session;
 import com.stripe.param.checkout.SessionCreateParams;
 import jakarta.servlet.http.HttpServletRequest;
-import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 
 
 
 @Service
 @Transactional
-@RequiredArgsConstructor
 public class PaymentServiceImpl implements IPaymentService {
 
     private final OrderRepository orderRepository;
-    private final CardRepository cardRepository;
-    private final IConfigService configService;
+    private final IPricingService pricingService;
     private final ICartService cartService;
-
-    @Value("${stripe.api-key:}")
-    private String stripeSecretKey;
+    private final IInventoryService inventoryService;
+    private final StripeGateway stripeGateway;
+    private final TransactionTemplate transactionTemplate;
 
     private final Map<String, String> qrCodeDatabase = new ConcurrentHashMap<>();
 
+    public PaymentServiceImpl(
+            OrderRepository orderRepository,
+            IPricingService pricingService,
+            ICartService cartService,
+            IInventoryService inventoryService,
+            StripeGateway stripeGateway,
+            PlatformTransactionManager transactionManager
+    ) {
+        this.orderRepository = orderRepository;
+        this.pricingService = pricingService;
+        this.cartService = cartService;
+        this.inventoryService = inventoryService;
+        this.stripeGateway = stripeGateway;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
     // ============================
     // CHECKOUT ENTRY POINT
     // ============================
+    /**
+     * Runs without a surrounding transaction. The order and its reservation commit
+     * first, in one short transaction, so the card rows are not locked while Stripe
+     * is called.
+     */
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public CheckoutResponse checkout(
             CheckoutRequest request,
-            HttpServletRequest httpRequest
+            HttpServletRequest httpRequest,
+            HttpServletResponse httpResponse
     ) throws Exception {
 
         if (request == null || request.getPaymentMethod() == null) {
@@ -63,14 +90,19 @@ public class PaymentServiceImpl implements IPaymentService {
         if (cartSessionId == null) {
             throw new IllegalStateException("Cart session not found");
         }
+        cartService.flush(httpRequest, httpResponse);
 
         Order order = buildOrderFromRequest(request);
         order.setCartSessionId(cartSessionId);
 
-        orderRepository.save(order);
+        // holds the stock while the customer pays; a shortage rolls the order back
+        LocalDateTime reservedUntil = transactionTemplate.execute(status -> {
+            orderRepository.save(order);
+            return inventoryService.reserve(order.getId(), lines(order));
+        });
 
         return switch (order.getPaymentMethod()) {
-            case STRIPE -> initiateStripeCheckout(order, httpRequest);
+            case STRIPE -> initiateStripeCheckout(order, reservedUntil, httpRequest);
             case ZELLE, CASHAPP -> pendingOfflinePaymentResponse(order);
         };
     }
@@ -96,12 +128,17 @@ public class PaymentServiceImpl implements IPaymentService {
         order.setPaymentStatus(Order.PaymentStatus.PENDING);
         order.setFulfillmentStatus(Order.FulfillmentStatus.PENDING);
 
-        double subtotal = 0.0;
-
-        for (CheckoutItemDto itemDto : request.getItems()) {
+        List<IPricingService.Line> lines = new ArrayList<>();
+        for (CheckoutItemDto itemDto : Optional.ofNullable(request.getItems()).orElse(List.of())) {
+            lines.add(new IPricingService.Line(
+                    itemDto.getCardId(),
+                    itemDto.getQuantity() != null ? itemDto.getQuantity() : 0
+            ));
+        }
+        IPricingService.Quote quote = pricingService.quote(lines);
 
-            Card card = cardRepository.findById(itemDto.getCardId())
-                    .orElseThrow(() -> new IllegalArgumentException("Card not found"));
+        for (IPricingService.PricedLine line : quote.lines()) {
+            Card card = line.card();
 
             if (!Boolean.TRUE.equals(card.isInStock())) {
                 throw new IllegalStateException("Card out of stock: " + card.getName());
@@ -110,22 +147,15 @@ public class PaymentServiceImpl implements IPaymentService {
             OrderItem item = new OrderItem();
             item.setOrder(order);
             item.setCard(card);
-            item.setQuantity(itemDto.getQuantity());
-            item.setPriceAtPurchase(card.getPrice());
+            item.setQuantity(line.quantity());
+            item.setPriceAtPurchase(MoneyUtil.fromCents(line.unitCents()));
 
-            subtotal += card.getPrice() * itemDto.getQuantity();
             order.getItems().add(item);
         }
 
-        order.setSubtotal(subtotal);
-
-        AppConfig config = configService.getConfig();
-        double shippingFee = subtotal >= config.getFreeShippingThreshold()
-                ? 0.0
-                : config.getStandardShippingFee();
-
-        order.setShippingFee(shippingFee);
-        order.setTotal(subtotal + shippingFee);
+        order.setSubtotal(MoneyUtil.fromCents(quote.subtotalCents()));
+        order.setShippingFee(MoneyUtil.fromCents(quote.shippingCents()));
+        order.setTotal(MoneyUtil.fromCents(quote.totalCents()));
 
         return order;
     }
@@ -135,11 +165,10 @@ public class PaymentServiceImpl implements IPaymentService {
     // ============================
     private CheckoutResponse initiateStripeCheckout(
             Order order,
+            LocalDateTime reservedUntil,
             HttpServletRequest request
     ) throws Exception {
 
-        Stripe.apiKey = stripeSecretKey;
-
         String baseUrl = getBaseUrl(request);
         List<SessionCreateParams.LineItem> lineItems = new ArrayList<>();
 
@@ -150,7 +179,7 @@ public class PaymentServiceImpl implements IPaymentService {
                             .setPriceData(
                                     SessionCreateParams.LineItem.PriceData.builder()
                                             .setCurrency("usd")
-                                            .setUnitAmount((long) (item.getPriceAtPurchase() * 100))
+                                            .setUnitAmount(MoneyUtil.toCents(item.getPriceAtPurchase()))
                                             .setProductData(
                                                     SessionCreateParams.LineItem.PriceData.ProductData.builder()
                                                             .setName(item.getCard().getName())
@@ -169,7 +198,7 @@ public class PaymentServiceImpl implements IPaymentService {
                             .setPriceData(
                                     SessionCreateParams.LineItem.PriceData.builder()
                                             .setCurrency("usd")
-                                            .setUnitAmount((long) (order.getShippingFee() * 100))
+                                            .setUnitAmount(MoneyUtil.toCents(order.getShippingFee()))
                                             .setProductData(
                                                     SessionCreateParams.LineItem.PriceData.ProductData.builder()
                                                             .setName("Shipping Fee")
@@ -181,19 +210,32 @@ public class PaymentServiceImpl implements IPaymentService {
             );
         }
 
-        Session session = Session.create(
-                SessionCreateParams.builder()
-                        .setMode(SessionCreateParams.Mode.PAYMENT)
-                        .addAllLineItem(lineItems)
-                        .setSuccessUrl(baseUrl + "/payment/success?session_id={CHECKOUT_SESSION_ID}")
-                        .setCancelUrl(baseUrl + "/payment/cancel")
-                        .putMetadata("orderId", order.getId())
-                        .putMetadata("cartSessionId", order.getCartSessionId())
-                        .build()
-        );
+        Session session;
+        try {
+            session = stripeGateway.createCheckoutSession(
+                    SessionCreateParams.builder()
+                            .setMode(SessionCreateParams.Mode.PAYMENT)
+                            .addAllLineItem(lineItems)
+                            .setSuccessUrl(baseUrl + "/payment/success?session_id={CHECKOUT_SESSION_ID}")
+                            .setCancelUrl(baseUrl + "/payment/cancel")
+                            .setExpiresAt(sessionExpiry(reservedUntil))
+                            .putMetadata("orderId", order.getId())
+                            .putMetadata("cartSessionId", order.getCartSessionId())
+                            .build(),
+                    stripeIdempotencyKey(request, order.getId())
+            );
+        } catch (Exception e) {
+            // the order was already committed; give its stock back
+            transactionTemplate.executeWithoutResult(status -> {
+                inventoryService.release(order.getId());
+                orderRepository.findById(order.getId())
+                        .ifPresent(failed -> failed.setPaymentStatus(Order.PaymentStatus.FAILED));
+            });
+            throw e;
+        }
 
-        order.setPaymentSessionId(session.getId());
-        orderRepository.save(order);
+        transactionTemplate.executeWithoutResult(status -> orderRepository.findById(order.getId())
+                .ifPresent(pending -> pending.setPaymentSessionId(session.getId())));
         return CheckoutResponse.builder()
                 .success(true)
                 .sessionId(session.getId())
@@ -201,6 +243,32 @@ public class PaymentServiceImpl implements IPaymentService {
                 .build();
     }
 
+    // the session closes with the reservation, within the 30 minutes to 24 hours Stripe accepts
+    private static long sessionExpiry(LocalDateTime reservedUntil) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiry = reservedUntil;
+        if (expiry.isBefore(now.plusMinutes(31))) {
+            expiry = now.plusMinutes(31);
+        } else if (expiry.isAfter(now.plusHours(23))) {
+            expiry = now.plusHours(23);
+        }
+        return expiry.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    private static List<IPricingService.Line> lines(Order order) {
+        List<IPricingService.Line> lines = new ArrayList<>(order.getItems().size());
+        for (OrderItem item : order.getItems()) {
+            lines.add(new IPricingService.Line(item.getCard().getId(), item.getQuantity()));
+        }
+        return lines;
+    }
+
+    // lets Stripe deduplicate too; scoped to the order, since a failed attempt's retry creates a new one
+    private static String stripeIdempotencyKey(HttpServletRequest request, String orderId) {
+        String idempotencyKey = request.getHeader(IIdempotencyService.HEADER);
+        return idempotencyKey == null || idempotencyKey.isBlank() ? null : "checkout:" + idempotencyKey + ":" + orderId;
+    }
+
     private String getBaseUrl(HttpServletRequest request) {
         String uiUrl = request.getHeader("X-UI-BASE-URL");
         if (uiUrl != null && !uiUrl.isBlank()) {
@@ -0,0 +1,77 @@
+package com.royalgrace.cards.service.impl;
+
+import com.royalgrace.cards.model.AppConfig;
+import com.royalgrace.cards.model.Card;
+import com.royalgrace.cards.repository.CardRepository;
+import com.royalgrace.cards.service.IConfigService;
+import com.royalgrace.cards.service.IPricingService;
+import com.royalgrace.cards.util.MoneyUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+@Service
+@RequiredArgsConstructor
+public class PricingServiceImpl implements IPricingService {
+
+    private final CardRepository cardRepository;
+    private final IConfigService configService;
+
+    @Override
+    @Transactional(readOnly = true)
+    public Quote quote(List<Line> lines) throws Exception {
+        if (lines == null || lines.isEmpty()) {
+            throw new IllegalArgumentException("Order must contain at least one item");
+        }
+
+        Set<String> cardIds = new HashSet<>();
+        for (Line line : lines) {
+            if (line.cardId() == null) {
+                throw new IllegalArgumentException("Order item must reference a card");
+            }
+            cardIds.add(line.cardId());
+        }
+
+        Map<String, Card> cards = new HashMap<>(cardIds.size() * 2);
+        cardRepository.findAllById(cardIds).forEach(card -> cards.put(card.getId(), card));
+
+        List<PricedLine> priced = new ArrayList<>(lines.size());
+        long subtotal = 0;
+
+        for (Line line : lines) {
+            Card card = cards.get(line.cardId());
+            if (card == null) {
+                throw new IllegalArgumentException("Card not found: " + line.cardId());
+            }
+            if (line.quantity() <= 0) {
+                throw new IllegalArgumentException("Invalid quantity for " + card.getName());
+            }
+            if (card.getPrice() == null) {
+                throw new IllegalStateException("Card has no price: " + card.getName());
+            }
+
+            long unitCents = MoneyUtil.toCents(card.getPrice());
+            long lineCents = Math.multiplyExact(unitCents, line.quantity());
+            subtotal = Math.addExact(subtotal, lineCents);
+            priced.add(new PricedLine(card, line.quantity(), unitCents, lineCents));
+        }
+
+        AppConfig config = configService.getConfig();
+        if (Objects.isNull(config)) {
+            throw new Exception("App config is null");
+        }
+
+        long freeShippingCents = config.getFreeShippingThreshold() * 100L;
+        long shipping = subtotal >= freeShippingCents ? 0 : MoneyUtil.toCents(config.getStandardShippingFee());
+
+        return new Quote(priced, subtotal, shipping, Math.addExact(subtotal, shipping));
+    }
+}
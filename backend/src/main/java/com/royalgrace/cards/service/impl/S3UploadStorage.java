@@ -0,0 +1,128 @@
+package com.royalgrace.cards.service.impl;
+
+import com.royalgrace.cards.service.IUploadStorage;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * S3-compatible object storage (AWS S3, MinIO, R2, ...). Objects are stored under
+ * {@code uploads/} and served directly from {@code upload.s3.public-base-url}.
+ */
+@Service
+@ConditionalOnProperty(name = "upload.storage", havingValue = "s3")
+public class S3UploadStorage implements IUploadStorage {
+
+    private static final String PREFIX = "uploads/";
+
+    private final S3Client s3;
+    private final String bucket;
+    private final String publicBaseUrl;
+
+    public S3UploadStorage(
+            @Value("${upload.s3.endpoint:}") String endpoint,
+            @Value("${upload.s3.region:us-east-1}") String region,
+            @Value("${upload.s3.bucket}") String bucket,
+            @Value("${upload.s3.access-key:}") String accessKey,
+            @Value("${upload.s3.secret-key:}") String secretKey,
+            @Value("${upload.s3.public-base-url}") String publicBaseUrl
+    ) {
+        S3ClientBuilder builder = S3Client.builder().region(Region.of(region));
+        if (!endpoint.isBlank()) {
+            // MinIO and most S3-compatible servers only support path-style addressing
+            builder.endpointOverride(URI.create(endpoint)).forcePathStyle(true);
+        }
+        builder.credentialsProvider(accessKey.isBlank()
+                ? DefaultCredentialsProvider.builder().build()
+                : StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey)));
+
+        this.s3 = builder.build();
+        this.bucket = bucket;
+        this.publicBaseUrl = publicBaseUrl.endsWith("/")
+                ? publicBaseUrl.substring(0, publicBaseUrl.length() - 1)
+                : publicBaseUrl;
+    }
+
+    @Override
+    public boolean exists(String name) throws IOException {
+        try {
+            s3.headObject(HeadObjectRequest.builder().bucket(bucket).key(PREFIX + name).build());
+            return true;
+        } catch (S3Exception e) {
+            // HEAD responses carry no body, so a missing key only shows up as the status
+            if (e.statusCode() == 404) {
+                return false;
+            }
+            throw new IOException("Could not check upload " + name + ": " + e.getMessage(), e);
+        } catch (SdkException e) {
+            throw new IOException("Could not check upload " + name + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void put(String name, InputStream content, long length, String contentType) throws IOException {
+        try {
+            s3.putObject(
+                    PutObjectRequest.builder()
+                            .bucket(bucket)
+                            .key(PREFIX + name)
+                            .contentType(contentType)
+                            .contentLength(length)
+                            .cacheControl("public, max-age=31536000, immutable")
+                            .build(),
+                    // known length, so the SDK streams the body instead of buffering it
+                    RequestBody.fromInputStream(content, length)
+            );
+        } catch (SdkException e) {
+            throw new IOException("Could not store upload " + name + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public InputStream open(String name) throws IOException {
+        try {
+            return s3.getObject(GetObjectRequest.builder().bucket(bucket).key(PREFIX + name).build());
+        } catch (SdkException e) {
+            throw new IOException("Could not read upload " + name + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String publicUrl(String name) {
+        return publicBaseUrl + "/" + PREFIX + name;
+    }
+
+    @Override
+    public Optional<Path> localPath(String name) {
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean isLocal() {
+        return false;
+    }
+
+    @PreDestroy
+    void close() {
+        s3.close();
+    }
+}
@@ -0,0 +1,241 @@
+package com.royalgrace.cards.service.impl;
+
+import com.royalgrace.cards.cache.CardCatalogCache;
+import com.royalgrace.cards.cache.CartWriteBehindStore;
+import com.royalgrace.cards.dto.CartItemResponse;
+import com.royalgrace.cards.dto.CartOperation;
+import com.royalgrace.cards.dto.CartResponse;
+import com.royalgrace.cards.model.Card;
+import com.royalgrace.cards.model.CartItem;
+import com.royalgrace.cards.repository.CardRepository;
+import com.royalgrace.cards.repository.CartRepository;
+import com.royalgrace.cards.service.ICartService;
+import com.royalgrace.cards.util.CartCookieUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Cart service backed by {@link CartWriteBehindStore}: reads and mutations are
+ * served from memory and written to the database in the background.
+ * Enabled with {@code cart.store=write-behind}.
+ */
+@Service
+@ConditionalOnProperty(name = "cart.store", havingValue = "write-behind")
+public class WriteBehindCartServiceImpl implements ICartService {
+
+    private final CartWriteBehindStore store;
+    private final CartRepository cartRepository;
+    private final CardRepository cardRepository;
+    private final CardCatalogCache catalogCache;
+    private final Counter virtualCarts;
+
+    public WriteBehindCartServiceImpl(
+            CartWriteBehindStore store,
+            CartRepository cartRepository,
+            CardRepository cardRepository,
+            CardCatalogCache catalogCache,
+            MeterRegistry meterRegistry
+    ) {
+        this.store = store;
+        this.cartRepository = cartRepository;
+        this.cardRepository = cardRepository;
+        this.catalogCache = catalogCache;
+        this.virtualCarts = Counter.builder("cart.materialization.avoided")
+                .description("Cart reads answered with a virtual empty cart instead of inserting a row")
+                .register(meterRegistry);
+    }
+
+    // =========================
+    // PUBLIC API
+    // =========================
+
+    @Override
+    public CartResponse getCart(
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) {
+        String sessionId = resolveSessionId(request);
+        Optional<Map<String, Integer>> lines = sessionId == null
+                ? Optional.empty()
+                : store.read(sessionId, this::load);
+
+        // an empty cart is virtual; it is created in the store on the first mutation
+        return map(lines.orElseGet(() -> {
+            virtualCarts.increment();
+            return Map.of();
+        }));
+    }
+
+    @Override
+    public CartResponse addItem(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            String cardId
+    ) {
+        getCard(cardId);
+        return map(mutate(request, response, lines -> CartOperation.add(lines, cardId, 1)));
+    }
+
+    @Override
+    public CartResponse updateQuantity(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            String cardId,
+            int quantity
+    ) {
+        CartOperation.checkQuantity(quantity);
+        String sessionId = resolveSessionId(request);
+        Map<String, Integer> updated = Optional.ofNullable(sessionId)
+                .flatMap(id -> store.mutate(id, this::load, lines -> {
+                    if (!lines.containsKey(cardId)) {
+                        throw new IllegalArgumentException("Item not found");
+                    }
+                    if (quantity <= 0) {
+                        lines.remove(cardId);
+                    } else {
+                        lines.put(cardId, quantity);
+                    }
+                }))
+                .orElseThrow(() -> new IllegalArgumentException("Item not found"));
+        return map(updated);
+    }
+
+    @Override
+    public CartResponse applyOperations(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            List<CartOperation> operations
+    ) {
+        CartOperation.validate(operations);
+        operations.stream()
+                .filter(CartOperation::addsCard)
+                .map(CartOperation::cardId)
+                .distinct()
+                .forEach(this::getCard);
+
+        // applied to a copy under the store lock, so the batch lands whole or not at all
+        return map(mutate(request, response, lines -> operations.forEach(operation -> operation.applyTo(lines))));
+    }
+
+    @Override
+    @Transactional
+    public void clearCart(String sessionId) {
+        if (sessionId == null || sessionId.isBlank()) return;
+
+        // dropped from memory first, so a pending flush cannot recreate the row
+        store.discard(sessionId);
+        cartRepository.findBySessionId(sessionId)
+                .ifPresent(cart -> cartRepository.deleteById(cart.getId()));
+    }
+
+    @Override
+    public void flush(
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) {
+        String sessionId = resolveSessionId(request);
+        if (sessionId != null) {
+            store.flush(sessionId);
+        }
+    }
+
+    @Override
+    public String resolveSessionId(HttpServletRequest request) {
+        if (request.getCookies() == null) return null;
+
+        return Arrays.stream(request.getCookies())
+                .filter(c -> CartCookieUtil.CART_ID.equals(c.getName()))
+                .map(Cookie::getValue)
+                .findFirst()
+                .orElse(null);
+    }
+
+    // =========================
+    // CART RESOLUTION
+    // =========================
+
+    private Map<String, Integer> mutate(
+            HttpServletRequest request,
+            HttpServletResponse response,
+            Consumer<Map<String, Integer>> mutation
+    ) {
+        String sessionId = resolveSessionId(request);
+        if (sessionId != null) {
+            Optional<Map<String, Integer>> lines = store.mutate(sessionId, this::load, mutation);
+            if (lines.isPresent()) {
+                return lines.get();
+            }
+        }
+
+        String created = UUID.randomUUID().toString();
+        store.create(created);
+        CartCookieUtil.set(response, created, isProduction());
+        return store.mutate(created, this::load, mutation).orElseThrow();
+    }
+
+    private Optional<Map<String, Integer>> load(String sessionId) {
+        return cartRepository.findWithItemsBySessionId(sessionId)
+                .map(cart -> {
+                    Map<String, Integer> lines = new LinkedHashMap<>();
+                    for (CartItem item : cart.getItems()) {
+                        lines.put(item.getCard().getId(), item.getQuantity());
+                    }
+                    return lines;
+                });
+    }
+
+    // =========================
+    // HELPERS
+    // =========================
+
+    private Card getCard(String cardId) {
+        return catalogCache.get(cardId, cardRepository::findById)
+                .orElseThrow(() -> new IllegalArgumentException("Card not found"));
+    }
+
+    private boolean isProduction() {
+        return !"local".equalsIgnoreCase(System.getenv("SPRING_PROFILES_ACTIVE"));
+    }
+
+    private CartResponse map(Map<String, Integer> lines) {
+
+        if (lines.isEmpty()) {
+            return new CartResponse(List.of(), 0, 0);
+        }
+
+        // names and prices come from the catalog cache, so building the response costs no queries
+        List<CartItemResponse> items = new ArrayList<>(lines.size());
+        lines.forEach((cardId, quantity) -> catalogCache.get(cardId, cardRepository::findById)
+                .ifPresent(card -> items.add(new CartItemResponse(
+                        card.getId(),
+                        card.getName(),
+                        card.getPrice(),
+                        quantity
+                ))));
+
+        int totalItems = items.stream()
+                .mapToInt(CartItemResponse::quantity)
+                .sum();
+
+        double subtotal = items.stream()
+                .mapToDouble(i -> i.price() * i.quantity())
+                .sum();
+
+        return new CartResponse(items, totalItems, subtotal);
+    }
+}
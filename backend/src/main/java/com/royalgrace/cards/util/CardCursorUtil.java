@@ -0,0 +1,61 @@
+package com.royalgrace.cards.util;
+
+import com.royalgrace.cards.dto.CardSort;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Opaque cursor for keyset pagination: {@code sort|id|sortKey}, base64url encoded.
+ * The sort is part of the cursor so it cannot be replayed against a different ordering.
+ */
+public final class CardCursorUtil {
+
+    private static final String SEPARATOR = "|";
+
+    public static String encode(CardSort sort, ScrollPosition position) {
+        Map<String, Object> keys = ((KeysetScrollPosition) position).getKeys();
+        Object key = keys.get(sort.property());
+        // a null key would encode as "null", which neither parses back nor compares in the keyset
+        if (key == null) {
+            throw new IllegalStateException("Card without " + sort.property() + " cannot be paged by " + sort);
+        }
+        String raw = sort.name() + SEPARATOR + keys.get("id") + SEPARATOR + key;
+
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ScrollPosition decode(CardSort sort, String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+
+        String[] parts = raw.split("\\|", 3);
+        if (parts.length != 3 || !sort.name().equals(parts[0])) {
+            throw new IllegalArgumentException("Cursor does not match sort " + sort);
+        }
+
+        try {
+            return ScrollPosition.forward(Map.of(
+                    sort.property(), sort.parseKey(parts[2]),
+                    "id", parts[1]
+            ));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private CardCursorUtil() {}
+}
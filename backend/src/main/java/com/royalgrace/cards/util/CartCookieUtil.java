@@ -7,25 +7,36 @@ public final class CartCookieUtil {
 
     public static final String CART_ID = "CART_ID";
 
-    public static void set(HttpServletResponse response, String sessionId, boolean secure) {
-        ResponseCookie cookie = ResponseCookie.from(CART_ID, sessionId)
-                .httpOnly(true)
-                .secure(secure)
-                .sameSite("Lax")
-                .path("/")
-                .maxAge(60 * 60 * 24 * 7)
-                .build();
+    /**
+     * Holds the whole cart as a signed token when {@code cart.store=cookie}.
+     */
+    public static final String CART_TOKEN = "CART";
 
-        response.addHeader("Set-Cookie", cookie.toString());
+    private static final int MAX_AGE = 60 * 60 * 24 * 7;
+
+    public static void set(HttpServletResponse response, String sessionId, boolean secure) {
+        write(response, CART_ID, sessionId, MAX_AGE, secure);
     }
 
     public static void clear(HttpServletResponse response, boolean secure) {
-        ResponseCookie cookie = ResponseCookie.from(CART_ID, "")
+        write(response, CART_ID, "", 0, secure);
+    }
+
+    public static void setToken(HttpServletResponse response, String token, boolean secure) {
+        write(response, CART_TOKEN, token, MAX_AGE, secure);
+    }
+
+    public static void clearToken(HttpServletResponse response, boolean secure) {
+        write(response, CART_TOKEN, "", 0, secure);
+    }
+
+    private static void write(HttpServletResponse response, String name, String value, int maxAge, boolean secure) {
+        ResponseCookie cookie = ResponseCookie.from(name, value)
                 .httpOnly(true)
                 .secure(secure)
                 .sameSite("Lax")
                 .path("/")
-                .maxAge(0)
+                .maxAge(maxAge)
                 .build();
 
         response.addHeader("Set-Cookie", cookie.toString());
@@ -33,4 +44,3 @@ public final class CartCookieUtil {
 
     private CartCookieUtil() {}
 }
-
@@ -0,0 +1,34 @@
+package com.royalgrace.cards.util;
+
+import org.springframework.http.CacheControl;
+
+/**
+ * Strong ETags built from in-process version counters. The boot epoch keeps
+ * tags from colliding across restarts, when the counters start again from zero.
+ */
+public final class ETagUtil {
+
+    private static final long EPOCH = System.currentTimeMillis();
+
+    // browsers and the Next.js fetch cache may store the body but must revalidate it
+    public static final CacheControl REVALIDATE = CacheControl.noCache().cachePublic();
+
+    public static String of(String resource, long version) {
+        return "\"" + resource + "-" + Long.toString(EPOCH, 36) + "-" + version + "\"";
+    }
+
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ETagUtil() {}
+}
@@ -0,0 +1,46 @@
+package com.royalgrace.cards.util;
+
+import com.royalgrace.cards.service.IImageService.ImageVariant;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public final class ImageUrlUtil {
+
+    // formats the pipeline decodes and makes variants of
+    private static final String VARIANT_FORMATS = "jpe?g|png|gif|bmp";
+    // content-hashed uploads in one of those formats
+    private static final Pattern HASHED_UPLOAD =
+            Pattern.compile("^(.*/uploads/[0-9a-f]{64})\\.(" + VARIANT_FORMATS + ")$");
+    private static final Pattern VARIANT_SOURCE = Pattern.compile("\\.(" + VARIANT_FORMATS + ")$");
+
+    /**
+     * Whether variant URLs are advertised for a stored upload of this name.
+     */
+    public static boolean hasVariants(String storedName) {
+        return VARIANT_SOURCE.matcher(storedName).find();
+    }
+
+    public static String variantName(String storedName, ImageVariant variant) {
+        int dot = storedName.lastIndexOf('.');
+        String base = dot > 0 ? storedName.substring(0, dot) : storedName;
+        return base + "-" + variant.suffix() + ".jpg";
+    }
+
+    /**
+     * Returns the variant URL for an uploaded image, or the URL itself when it was
+     * not produced by the image pipeline (legacy uploads, external links, svg).
+     */
+    public static String variantUrl(String url, ImageVariant variant) {
+        if (url == null) {
+            return null;
+        }
+        Matcher matcher = HASHED_UPLOAD.matcher(url);
+        if (!matcher.matches()) {
+            return url;
+        }
+        return matcher.group(1) + "-" + variant.suffix() + ".jpg";
+    }
+
+    private ImageUrlUtil() {}
+}
@@ -0,0 +1,18 @@
+package com.royalgrace.cards.util;
+
+/**
+ * Conversions between the dollar amounts stored on entities and the integer cents
+ * all arithmetic is done in. Rounding happens once, at the boundary.
+ */
+public final class MoneyUtil {
+
+    public static long toCents(double dollars) {
+        return Math.round(dollars * 100);
+    }
+
+    public static double fromCents(long cents) {
+        return cents / 100.0;
+    }
+
+    private MoneyUtil() {}
+}
@@ -0,0 +1,95 @@
+package com.royalgrace.cards;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jdbc.test.autoconfigure.AutoConfigureTestDatabase;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Base for tests of the upserts and conditional updates that only Postgres can
+ * check: they rely on ON CONFLICT and row locks. Subclasses are skipped unless
+ * {@code TEST_DATABASE_URL} (with {@code TEST_DATABASE_USERNAME} and
+ * {@code TEST_DATABASE_PASSWORD}) points at a scratch database. The schema is
+ * created there the way the application creates it.
+ * <p>
+ * Tests run outside a test transaction, so each thread commits on its own.
+ */
+// the logging level is bound before dynamic properties are added
+@DataJpaTest(properties = {
+        "logging.level.root=INFO",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public abstract class PostgresTestSupport {
+
+    public static final String DATABASE_URL = "TEST_DATABASE_URL";
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getenv(DATABASE_URL));
+        registry.add("spring.datasource.username",
+                () -> Objects.requireNonNullElse(System.getenv("TEST_DATABASE_USERNAME"), "postgres"));
+        registry.add("spring.datasource.password",
+                () -> Objects.requireNonNullElse(System.getenv("TEST_DATABASE_PASSWORD"), ""));
+        registry.add("spring.jpa.show-sql", () -> "false");
+    }
+
+    /**
+     * Returns how many SQL statements the action prepared.
+     */
+    protected long countStatements(Runnable action) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        action.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    /**
+     * Runs the task once per thread, releasing all threads together, and returns
+     * what the runs threw.
+     */
+    protected static List<Throwable> runConcurrently(int threads, IntConsumer task) throws InterruptedException {
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int i = 0; i < threads; i++) {
+                int run = i;
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                        task.accept(run);
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    }
+                });
+            }
+            start.countDown();
+        } finally {
+            executor.shutdown();
+        }
+        if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Concurrent runs did not finish");
+        }
+        return List.copyOf(failures);
+    }
+}
@@ -0,0 +1,108 @@
+package com.royalgrace.cards.cache;
+
+import com.royalgrace.cards.repository.CartLineWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+class CartWriteBehindStoreTest {
+
+    private static final long NEVER_MS = 3_600_000;
+
+    private final CartLineWriter writer = mock(CartLineWriter.class);
+    private CartWriteBehindStore store;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (store != null) {
+            store.shutdown();
+        }
+    }
+
+    @Test
+    void shutdownFlushesDirtyCarts() throws InterruptedException {
+        store = store(10, 10, NEVER_MS);
+        store.create("s1");
+        addCard("s1", "card-1");
+
+        store.shutdown();
+
+        verify(writer).replace("s1", Map.of("card-1", 1));
+    }
+
+    @Test
+    void failedFlushIsRetriedOnTheNextTick() {
+        doThrow(new DataAccessResourceFailureException("database down"))
+                .doNothing()
+                .when(writer).replace(anyString(), anyMap());
+        store = store(10, 10, 50);
+        store.create("s1");
+        addCard("s1", "card-1");
+
+        verify(writer, timeout(5_000).times(2)).replace("s1", Map.of("card-1", 1));
+    }
+
+    @Test
+    void dirtyEvictedCartIsWritten() {
+        store = store(1, 10, NEVER_MS);
+        store.create("s1");
+        addCard("s1", "card-1");
+
+        store.create("s2");
+
+        verify(writer, timeout(5_000)).replace("s1", Map.of("card-1", 1));
+        verify(writer, never()).replace(eq("s2"), any());
+    }
+
+    @Test
+    void newCartsAreRejectedWhileEvictedCartsCannotBeWritten() {
+        doThrow(new DataAccessResourceFailureException("database down"))
+                .when(writer).replace(anyString(), anyMap());
+        store = store(1, 1, NEVER_MS);
+        store.create("s1");
+        addCard("s1", "card-1");
+        store.create("s2");
+        verify(writer, timeout(5_000)).replace("s1", Map.of("card-1", 1));
+
+        assertThatThrownBy(() -> store.create("s3"))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+
+        // buffered carts keep working
+        assertThat(addCard("s2", "card-2")).contains(Map.of("card-2", 1));
+    }
+
+    private Optional<Map<String, Integer>> addCard(String sessionId, String cardId) {
+        return store.mutate(sessionId, id -> Optional.empty(), lines -> lines.merge(cardId, 1, Integer::sum));
+    }
+
+    private CartWriteBehindStore store(int maxCarts, int maxPending, long flushIntervalMs) {
+        return new CartWriteBehindStore(
+                writer,
+                mock(PlatformTransactionManager.class),
+                new SimpleMeterRegistry(),
+                maxCarts,
+                maxPending,
+                flushIntervalMs
+        );
+    }
+}
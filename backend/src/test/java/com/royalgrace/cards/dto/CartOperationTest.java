@@ -0,0 +1,52 @@
+package com.royalgrace.cards.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CartOperationTest {
+
+    private static final int MAX = CartOperation.MAX_LINE_QUANTITY;
+
+    @Test
+    void addMergesUpToTheLineLimit() {
+        Map<String, Integer> lines = new HashMap<>(Map.of("card", MAX - 1));
+
+        new CartOperation(CartOperation.Type.ADD, "card", 1).applyTo(lines);
+
+        assertThat(lines).containsEntry("card", MAX);
+    }
+
+    @Test
+    void addOverTheLineLimitLeavesTheLineAlone() {
+        Map<String, Integer> lines = new HashMap<>(Map.of("card", MAX));
+
+        assertThatThrownBy(() -> new CartOperation(CartOperation.Type.ADD, "card", 1).applyTo(lines))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(lines).containsEntry("card", MAX);
+    }
+
+    @Test
+    void addNearIntMaxDoesNotOverflow() {
+        Map<String, Integer> lines = new HashMap<>(Map.of("card", Integer.MAX_VALUE));
+
+        assertThatThrownBy(() -> CartOperation.add(lines, "card", Integer.MAX_VALUE))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(lines).containsEntry("card", Integer.MAX_VALUE);
+    }
+
+    @Test
+    void validateRejectsQuantitiesOverTheLineLimit() {
+        assertThatThrownBy(() -> CartOperation.validate(List.of(
+                new CartOperation(CartOperation.Type.ADD, "card", MAX + 1))))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> CartOperation.validate(List.of(
+                new CartOperation(CartOperation.Type.SET, "card", Integer.MAX_VALUE))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
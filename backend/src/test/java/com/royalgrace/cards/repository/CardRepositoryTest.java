@@ -0,0 +1,76 @@
+package com.royalgrace.cards.repository;
+
+import com.royalgrace.cards.PostgresTestSupport;
+import com.royalgrace.cards.dto.CardSummaryResponse;
+import com.royalgrace.cards.model.Card;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@EnabledIfEnvironmentVariable(named = PostgresTestSupport.DATABASE_URL, matches = ".+")
+class CardRepositoryTest extends PostgresTestSupport {
+
+    @Autowired
+    private CardRepository cardRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private final List<Card> cards = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cardRepository.deleteAll(cards);
+    }
+
+    @Test
+    void summariesTakeOneStatementWhateverTheCatalogSize() {
+        addCards(3);
+        long few = countSummaryStatements();
+
+        addCards(30);
+        long many = countSummaryStatements();
+
+        assertThat(few).isEqualTo(1);
+        assertThat(many).isEqualTo(few);
+    }
+
+    // what CardServiceImpl.getCardSummaries does on a cache miss
+    private long countSummaryStatements() {
+        Set<String> ids = cards.stream().map(Card::getId).collect(Collectors.toSet());
+        return countStatements(() -> transactionTemplate.executeWithoutResult(status -> {
+            List<CardSummaryResponse> summaries = cardRepository.findAllWithImages().stream()
+                    .map(CardSummaryResponse::from)
+                    .filter(summary -> ids.contains(summary.id()))
+                    .toList();
+            assertThat(summaries).hasSize(cards.size())
+                    .allSatisfy(summary -> assertThat(summary.images()).hasSize(2));
+        }));
+    }
+
+    private void addCards(int count) {
+        for (int i = 0; i < count; i++) {
+            Card card = new Card();
+            card.setName("Query count test card " + cards.size());
+            card.setPrice(1.0);
+            card.setImages(new ArrayList<>(List.of("a.jpg", "b.jpg")));
+            cards.add(cardRepository.save(card));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.royalgrace.cards.repository;
+
+import com.royalgrace.cards.PostgresTestSupport;
+import com.royalgrace.cards.dto.CartOperation;
+import com.royalgrace.cards.model.Card;
+import com.royalgrace.cards.model.Cart;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@EnabledIfEnvironmentVariable(named = PostgresTestSupport.DATABASE_URL, matches = ".+")
+class CartItemRepositoryTest extends PostgresTestSupport {
+
+    private static final int THREADS = 16;
+    private static final int ADDS_PER_THREAD = 5;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+    @Autowired
+    private CartRepository cartRepository;
+    @Autowired
+    private CardRepository cardRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private DataSource dataSource;
+
+    private Cart cart;
+    private Card card;
+
+    @BeforeEach
+    void setUp() {
+        card = new Card();
+        card.setName("Concurrency test card");
+        card.setPrice(1.0);
+        card = cardRepository.save(card);
+
+        cart = new Cart();
+        cart.setSessionId(UUID.randomUUID().toString());
+        cart = cartRepository.save(cart);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cartRepository.deleteById(cart.getId());
+        cardRepository.deleteById(card.getId());
+    }
+
+    @Test
+    void concurrentAddsOfTheSameCardUpsertOneLine() throws InterruptedException {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        List<Throwable> failures = runConcurrently(THREADS, run -> {
+            for (int i = 0; i < ADDS_PER_THREAD; i++) {
+                transactionTemplate.executeWithoutResult(status -> cartItemRepository.addQuantity(
+                        UUID.randomUUID().toString(), cart.getId(), card.getId(), 1, CartOperation.MAX_LINE_QUANTITY));
+            }
+        });
+
+        assertThat(failures).isEmpty();
+        List<Integer> quantities = new JdbcTemplate(dataSource).queryForList(
+                "SELECT quantity FROM cart_items WHERE cart_id = ?", Integer.class, cart.getId());
+        assertThat(quantities).containsExactly(THREADS * ADDS_PER_THREAD);
+    }
+
+    @Test
+    void addOverTheLineLimitChangesNothing() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int max = CartOperation.MAX_LINE_QUANTITY;
+
+        Integer first = transactionTemplate.execute(status -> cartItemRepository.addQuantity(
+                UUID.randomUUID().toString(), cart.getId(), card.getId(), max, max));
+        Integer over = transactionTemplate.execute(status -> cartItemRepository.addQuantity(
+                UUID.randomUUID().toString(), cart.getId(), card.getId(), 1, max));
+
+        assertThat(first).isEqualTo(1);
+        assertThat(over).isZero();
+        assertThat(new JdbcTemplate(dataSource).queryForObject(
+                "SELECT quantity FROM cart_items WHERE cart_id = ?", Integer.class, cart.getId())).isEqualTo(max);
+    }
+}
@@ -0,0 +1,76 @@
+package com.royalgrace.cards.repository;
+
+import com.royalgrace.cards.PostgresTestSupport;
+import com.royalgrace.cards.dto.CartOperation;
+import com.royalgrace.cards.model.Card;
+import com.royalgrace.cards.model.Cart;
+import com.royalgrace.cards.model.CartItem;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@EnabledIfEnvironmentVariable(named = PostgresTestSupport.DATABASE_URL, matches = ".+")
+class CartRepositoryTest extends PostgresTestSupport {
+
+    private static final int LINES = 10;
+
+    @Autowired
+    private CartRepository cartRepository;
+    @Autowired
+    private CartItemRepository cartItemRepository;
+    @Autowired
+    private CardRepository cardRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private final List<Card> cards = new ArrayList<>();
+    private Cart cart;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int i = 0; i < LINES; i++) {
+            Card card = new Card();
+            card.setName("Query count test card " + i);
+            card.setPrice(1.0);
+            card.setImages(new ArrayList<>(List.of("a.jpg", "b.jpg")));
+            cards.add(cardRepository.save(card));
+        }
+
+        cart = new Cart();
+        cart.setSessionId(UUID.randomUUID().toString());
+        cart = cartRepository.save(cart);
+        transactionTemplate.executeWithoutResult(status -> cards.forEach(card ->
+                cartItemRepository.addQuantity(UUID.randomUUID().toString(), cart.getId(), card.getId(), 1, CartOperation.MAX_LINE_QUANTITY)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        cartRepository.deleteById(cart.getId());
+        cardRepository.deleteAll(cards);
+    }
+
+    @Test
+    void findWithItemsBySessionIdLoadsCartLinesAndCardsInOneStatement() {
+        long statements = countStatements(() -> transactionTemplate.executeWithoutResult(status -> {
+            Cart loaded = cartRepository.findWithItemsBySessionId(cart.getSessionId()).orElseThrow();
+            assertThat(loaded.getItems()).hasSize(LINES);
+            for (CartItem item : loaded.getItems()) {
+                assertThat(item.getCard().getName()).startsWith("Query count test card");
+            }
+        }));
+
+        assertThat(statements).isEqualTo(1);
+    }
+}
@@ -0,0 +1,51 @@
+package com.royalgrace.cards.service.impl;
+
+import com.royalgrace.cards.cache.CardCatalogCache;
+import com.royalgrace.cards.cache.CategoryFacetCounter;
+import com.royalgrace.cards.dto.CardImportResponse;
+import com.royalgrace.cards.search.CardSearchIndex;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class CardTransferServiceImplTest {
+
+    private final CardTransferServiceImpl transferService = new CardTransferServiceImpl(
+            mock(JdbcTemplate.class),
+            mock(CardCatalogCache.class),
+            mock(CardSearchIndex.class),
+            mock(CategoryFacetCounter.class),
+            Optional.empty()
+    );
+
+    @Test
+    void rowsWithNumbersThatAreNotPlainDecimalsAreReported() throws Exception {
+        CardImportResponse response = transferService.importCards(csv("""
+                name,price,inventory
+                Valid,$1.50,5.0
+                Not a number,NaN,1
+                Infinite,Infinity,1
+                Hex,0x1p3,1
+                Suffixed,2d,1
+                Too many,1.00,1e12
+                Fractional,1.00,2.5
+                Negative,1.00,-1
+                """));
+
+        assertThat(response.imported()).isEqualTo(1);
+        assertThat(response.skipped()).isEqualTo(7);
+        assertThat(response.errors()).hasSize(7)
+                .allSatisfy(error -> assertThat(error).containsAnyOf("invalid price", "invalid inventory",
+                        "must not be negative"));
+    }
+
+    private static MockMultipartFile csv(String content) {
+        return new MockMultipartFile("file", "cards.csv", "text/csv", content.getBytes(StandardCharsets.UTF_8));
+    }
+}
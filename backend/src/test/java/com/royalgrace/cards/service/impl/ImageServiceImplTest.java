@@ -0,0 +1,130 @@
+package com.royalgrace.cards.service.impl;
+
+import com.royalgrace.cards.service.IImageService.ImageVariant;
+import com.royalgrace.cards.service.IUploadStorage;
+import com.royalgrace.cards.util.ImageUrlUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class ImageServiceImplTest {
+
+    private final MemoryStorage storage = new MemoryStorage();
+    private ImageServiceImpl imageService;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        imageService.shutdown();
+    }
+
+    @Test
+    void reuploadRebuildsMissingVariants() throws Exception {
+        imageService = new ImageServiceImpl(storage, 1, 1);
+        MultipartFile file = png("card.png", 0);
+        String name = imageService.store(file);
+        awaitVariants(name);
+
+        // as if generation had failed, or the process died with the job still queued
+        storage.objects.remove(ImageUrlUtil.variantName(name, ImageVariant.THUMBNAIL));
+
+        assertThat(imageService.store(file)).isEqualTo(name);
+        awaitVariants(name);
+    }
+
+    @Test
+    void variantsAreOnlyGeneratedOnWorkerThreadsWhenTheQueueIsFull() throws Exception {
+        imageService = new ImageServiceImpl(storage, 1, 1);
+        List<MultipartFile> files = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            files.add(png("card-" + i + ".png", i));
+        }
+
+        List<String> names = imageService.storeAll(files);
+
+        for (String name : names) {
+            awaitVariants(name);
+        }
+        assertThat(storage.variantThreads.values()).allMatch(thread -> thread.startsWith("image-"));
+    }
+
+    private void awaitVariants(String name) {
+        await().atMost(10, TimeUnit.SECONDS).until(() -> {
+            for (ImageVariant variant : ImageVariant.values()) {
+                if (!storage.objects.containsKey(ImageUrlUtil.variantName(name, variant))) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    // distinct pixels give every file distinct bytes, so none is de-duplicated
+    private static MultipartFile png(String filename, int seed) throws IOException {
+        BufferedImage image = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, seed + 1);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bytes);
+        return new MockMultipartFile("file", filename, "image/png", bytes.toByteArray());
+    }
+
+    private static final class MemoryStorage implements IUploadStorage {
+
+        private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+        private final Map<String, String> variantThreads = new ConcurrentHashMap<>();
+
+        @Override
+        public boolean exists(String name) {
+            return objects.containsKey(name);
+        }
+
+        @Override
+        public void put(String name, InputStream content, long length, String contentType) throws IOException {
+            objects.put(name, content.readAllBytes());
+            if (name.endsWith(".jpg") && name.contains("-")) {
+                variantThreads.put(name, Thread.currentThread().getName());
+            }
+        }
+
+        @Override
+        public InputStream open(String name) throws IOException {
+            byte[] bytes = objects.get(name);
+            if (bytes == null) {
+                throw new IOException("No such object " + name);
+            }
+            return new ByteArrayInputStream(bytes);
+        }
+
+        @Override
+        public String publicUrl(String name) {
+            return "/uploads/" + name;
+        }
+
+        @Override
+        public Optional<Path> localPath(String name) {
+            return Optional.empty();
+        }
+
+        @Override
+        public boolean isLocal() {
+            return false;
+        }
+    }
+}
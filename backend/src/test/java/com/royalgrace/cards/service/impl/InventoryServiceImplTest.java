@@ -0,0 +1,127 @@
+package com.royalgrace.cards.service.impl;
+
+import com.royalgrace.cards.PostgresTestSupport;
+import com.royalgrace.cards.cache.CardCatalogCache;
+import com.royalgrace.cards.cache.CategoryFacetCounter;
+import com.royalgrace.cards.model.Card;
+import com.royalgrace.cards.repository.CardRepository;
+import com.royalgrace.cards.service.IPricingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@EnabledIfEnvironmentVariable(named = PostgresTestSupport.DATABASE_URL, matches = ".+")
+class InventoryServiceImplTest extends PostgresTestSupport {
+
+    private static final int STOCK = 10;
+    private static final int BUYERS = 32;
+
+    @Autowired
+    private CardRepository cardRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private DataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private InventoryServiceImpl inventoryService;
+    private String orderPrefix;
+    private Card card;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        inventoryService = new InventoryServiceImpl(
+                jdbcTemplate,
+                cardRepository,
+                new CardCatalogCache(meterRegistry),
+                new CategoryFacetCounter(),
+                Optional.empty(),
+                meterRegistry,
+                60
+        );
+
+        card = new Card();
+        card.setName("Concurrency test card");
+        card.setPrice(1.0);
+        card.setInventory(STOCK);
+        card = cardRepository.save(card);
+        orderPrefix = card.getId() + ":";
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM inventory_reservations WHERE card_id = ?", card.getId());
+        jdbcTemplate.update("DELETE FROM inventory_commits WHERE order_id LIKE ?", orderPrefix + "%");
+        cardRepository.deleteById(card.getId());
+    }
+
+    @Test
+    void concurrentReservationsNeverOversell() throws InterruptedException {
+        List<Throwable> failures = runConcurrently(BUYERS, buyer -> reserve(orderPrefix + buyer, 1));
+
+        assertThat(failures).hasSize(BUYERS - STOCK).allMatch(IllegalStateException.class::isInstance);
+        assertThat(cardRow()).containsEntry("inventory", 0).containsEntry("in_stock", false);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM inventory_reservations WHERE card_id = ?", Integer.class, card.getId()))
+                .isEqualTo(STOCK);
+    }
+
+    @Test
+    void releasePutsCardSoldOutByOrdersBackOnSale() {
+        reserve(orderPrefix + "all", STOCK);
+        assertThat(cardRow()).containsEntry("in_stock", false);
+
+        transactionTemplate.executeWithoutResult(status -> inventoryService.release(orderPrefix + "all"));
+
+        assertThat(cardRow()).containsEntry("inventory", STOCK).containsEntry("in_stock", true);
+    }
+
+    @Test
+    void releaseLeavesCardTakenOffSaleByAdminOffSale() {
+        card.setInStock(false);
+        card = cardRepository.save(card);
+        reserve(orderPrefix + "all", STOCK);
+
+        transactionTemplate.executeWithoutResult(status -> inventoryService.release(orderPrefix + "all"));
+
+        assertThat(cardRow()).containsEntry("inventory", STOCK).containsEntry("in_stock", false);
+    }
+
+    @Test
+    void repeatedCommitTakesStockOnce() {
+        List<IPricingService.Line> lines = List.of(new IPricingService.Line(card.getId(), 2));
+        reserve(orderPrefix + "paid", 2);
+
+        // COMPLETED, back to PENDING, COMPLETED again
+        transactionTemplate.executeWithoutResult(status -> inventoryService.commit(orderPrefix + "paid", lines));
+        transactionTemplate.executeWithoutResult(status -> inventoryService.commit(orderPrefix + "paid", lines));
+
+        assertThat(cardRow()).containsEntry("inventory", STOCK - 2);
+    }
+
+    private void reserve(String orderId, int quantity) {
+        transactionTemplate.executeWithoutResult(status -> inventoryService.reserve(
+                orderId, List.of(new IPricingService.Line(card.getId(), quantity))));
+    }
+
+    private Map<String, Object> cardRow() {
+        return jdbcTemplate.queryForMap("SELECT inventory, in_stock FROM cards WHERE id = ?", card.getId());
+    }
+}
@@ -0,0 +1,142 @@
+package com.royalgrace.cards.service.impl;
+
+import com.royalgrace.cards.model.AppConfig;
+import com.royalgrace.cards.model.Card;
+import com.royalgrace.cards.model.Order;
+import com.royalgrace.cards.model.OrderItem;
+import com.royalgrace.cards.repository.CardRepository;
+import com.royalgrace.cards.repository.OrderRepository;
+import com.royalgrace.cards.service.IConfigService;
+import com.royalgrace.cards.service.IInventoryService;
+import com.royalgrace.cards.service.IPricingService;
+import com.royalgrace.cards.util.MoneyUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Property checks over random carts: a fixed seed keeps failures reproducible.
+ */
+class PricingServiceImplTest {
+
+    private static final int RUNS = 500;
+    private static final int FREE_SHIPPING_DOLLARS = 100;
+    private static final double SHIPPING_FEE = 7.99;
+
+    private final CardRepository cardRepository = mock(CardRepository.class);
+    private final IConfigService configService = mock(IConfigService.class);
+    private final PricingServiceImpl pricingService = new PricingServiceImpl(cardRepository, configService);
+    private final Map<String, Card> catalog = new HashMap<>();
+    private final Random random = new Random(20_260_101L);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        AppConfig config = new AppConfig();
+        config.setStandardShippingFee(SHIPPING_FEE);
+        config.setFreeShippingThreshold(FREE_SHIPPING_DOLLARS);
+        when(configService.getConfig()).thenReturn(config);
+        when(cardRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            List<Card> found = new ArrayList<>();
+            for (Object id : invocation.<Iterable<?>>getArgument(0)) {
+                if (catalog.containsKey(id)) {
+                    found.add(catalog.get(id));
+                }
+            }
+            return found;
+        });
+
+        for (int i = 0; i < 50; i++) {
+            Card card = new Card();
+            card.setId("card-" + i);
+            card.setName("Card " + i);
+            // whole cents, as prices are entered
+            card.setPrice((1 + random.nextInt(20_000)) / 100.0);
+            catalog.put(card.getId(), card);
+        }
+    }
+
+    @Test
+    void totalIsTheSumOfLineCentsPlusShipping() throws Exception {
+        for (int run = 0; run < RUNS; run++) {
+            IPricingService.Quote quote = pricingService.quote(randomLines());
+
+            long subtotal = 0;
+            for (IPricingService.PricedLine line : quote.lines()) {
+                assertThat(line.unitCents()).isEqualTo(MoneyUtil.toCents(line.card().getPrice()));
+                assertThat(line.lineCents()).isEqualTo(line.unitCents() * line.quantity());
+                subtotal += line.lineCents();
+            }
+            assertThat(quote.subtotalCents()).isEqualTo(subtotal);
+            assertThat(quote.shippingCents()).isEqualTo(
+                    subtotal >= FREE_SHIPPING_DOLLARS * 100L ? 0 : MoneyUtil.toCents(SHIPPING_FEE));
+            assertThat(quote.totalCents()).isEqualTo(quote.subtotalCents() + quote.shippingCents());
+        }
+    }
+
+    @Test
+    void orderTotalMatchesWhatStripeIsAskedToCharge() throws Exception {
+        OrderRepository orderRepository = mock(OrderRepository.class);
+        when(orderRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        OrderServiceImpl orderService = new OrderServiceImpl(
+                orderRepository, pricingService, mock(IInventoryService.class));
+
+        for (int run = 0; run < RUNS; run++) {
+            List<IPricingService.Line> lines = randomLines();
+            IPricingService.Quote quote = pricingService.quote(lines);
+            Order order = orderService.createOrder(order(lines));
+
+            // the Stripe session is built from the stored unit prices, quantities and shipping fee
+            long charged = MoneyUtil.toCents(order.getShippingFee());
+            for (OrderItem item : order.getItems()) {
+                charged += MoneyUtil.toCents(item.getPriceAtPurchase()) * item.getQuantity();
+            }
+            assertThat(MoneyUtil.toCents(order.getTotal())).isEqualTo(quote.totalCents());
+            assertThat(charged).isEqualTo(quote.totalCents());
+        }
+    }
+
+    @Test
+    void overflowingLineIsRejected() {
+        Card card = catalog.get("card-0");
+        card.setPrice(1e15);
+
+        assertThatThrownBy(() -> pricingService.quote(List.of(new IPricingService.Line(card.getId(), 100_000))))
+                .isInstanceOf(ArithmeticException.class);
+    }
+
+    private List<IPricingService.Line> randomLines() {
+        int count = 1 + random.nextInt(8);
+        List<IPricingService.Line> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // the same card may appear on several lines
+            lines.add(new IPricingService.Line("card-" + random.nextInt(catalog.size()), 1 + random.nextInt(5)));
+        }
+        return lines;
+    }
+
+    private static Order order(List<IPricingService.Line> lines) {
+        Order order = new Order();
+        order.setPaymentMethod(Order.PaymentMethod.ZELLE);
+        for (IPricingService.Line line : lines) {
+            Card card = new Card();
+            card.setId(line.cardId());
+            OrderItem item = new OrderItem();
+            item.setCard(card);
+            item.setQuantity(line.quantity());
+            order.getItems().add(item);
+        }
+        return order;
+    }
+}